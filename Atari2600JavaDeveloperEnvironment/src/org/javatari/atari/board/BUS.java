@@ -2,6 +2,9 @@
 
 package org.javatari.atari.board;
 
+import java.nio.ByteBuffer;
+import java.util.Random;
+
 import org.javatari.atari.cartridge.Cartridge;
 import org.javatari.atari.pia.PIA;
 import org.javatari.atari.pia.RAM;
@@ -25,9 +28,14 @@ public final class BUS implements BUS16Bits, ClockDriven {
 		pia.connectBus(this);
 	}
 
+	// Use another source of randomness, for reproducible runs
+	public void randomizer(Random random) {
+		this.random = random;
+	}
+
 	public void powerOn() {
 		// Data in the bus come random at powerOn
-		if (cartridge == null) data = (byte)Randomizer.instance.nextInt(256);
+		if (cartridge == null) data = (byte)random.nextInt(256);
 		else data = 0;
 	}
 
@@ -35,6 +43,15 @@ public final class BUS implements BUS16Bits, ClockDriven {
 		// Nothing
 	}
 
+	// Only the data retained in the bus
+	public void saveState(ByteBuffer out) {
+		out.put(data);
+	}
+
+	public void loadState(ByteBuffer in) {
+		data = in.get();
+	}
+
 	@Override
 	public void clockPulse() {
 		pia.clockPulse();
@@ -57,8 +74,9 @@ public final class BUS implements BUS16Bits, ClockDriven {
 			else
 				data = tia.readByte(address);							// As if all bits were provided by TIA
 
-		// CART Bus monitoring
-		if (cartridgeNeedsBusMonitoring) cartridge.monitorByteRead(address, data);
+		// CART Bus monitoring, only on the addresses asked
+		if (monitoredReads != null && (monitoredReads[(address & 0xffff) >>> 6] & (1L << address)) != 0)
+			cartridge.monitorByteRead(address, data);
 
 		return data;
 	}
@@ -73,15 +91,28 @@ public final class BUS implements BUS16Bits, ClockDriven {
 		else 																	// CART selected...
 			if	(cartridge != null) cartridge.writeByte(address, b);				
 
-		// CART Bus monitoring
-		if (cartridgeNeedsBusMonitoring) cartridge.monitorByteWritten(address, b);
+		// CART Bus monitoring, only on the addresses asked
+		if (monitoredWrites != null && (monitoredWrites[(address & 0xffff) >>> 6] & (1L << address)) != 0)
+			cartridge.monitorByteWritten(address, b);
 	}
 
 	public void cartridge(Cartridge cartridge) {
 		this.cartridge = cartridge;
 		if (cartridge != null) cartridge.connectBus(this);
 		cartridgeNeedsClock = cartridge == null ? false : cartridge.needsClock();
-		cartridgeNeedsBusMonitoring = cartridge == null ? false : cartridge.needsBusMonitoring();
+		boolean monitoring = cartridge == null ? false : cartridge.needsBusMonitoring();
+		monitoredReads = monitoring ? addressBitmap(cartridge.monitoredReadRanges()) : null;
+		monitoredWrites = monitoring ? addressBitmap(cartridge.monitoredWriteRanges()) : null;
+		tia.audioSynchCartridge(cartridge != null && cartridge.needsAudioSynch() ? cartridge : null);
+	}
+
+	private static long[] addressBitmap(int[] ranges) {
+		if (ranges == null || ranges.length == 0) return null;
+		long[] bitmap = new long[65536 / 64];
+		for (int r = 0; r < ranges.length; r += 2)
+			for (int address = ranges[r]; address <= ranges[r + 1]; address++)
+				bitmap[address >>> 6] |= 1L << address;
+		return bitmap;
 	}
 
 
@@ -92,8 +123,10 @@ public final class BUS implements BUS16Bits, ClockDriven {
 	public final PIA pia;
 
 	private byte data = 0;
+	private Random random = Randomizer.instance;
 	private boolean cartridgeNeedsClock = false;
-	private boolean cartridgeNeedsBusMonitoring = false;
+	private long[] monitoredReads;		// One bit per address. null = no monitoring
+	private long[] monitoredWrites;
 
 	private static final int CART_MASK = 0x1000;
 	private static final int CART_SEL = 0x1000;
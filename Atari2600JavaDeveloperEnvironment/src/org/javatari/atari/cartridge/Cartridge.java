@@ -10,6 +10,8 @@ import org.javatari.general.board.BUS16Bits;
 import org.javatari.general.board.ClockDriven;
 
 import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
 import java.util.Map;
 
 
@@ -76,10 +78,62 @@ public abstract class Cartridge implements BUS16Bits, ClockDriven, Cloneable, Se
     return false;
   }
 
+  // Address ranges to monitor reads from, as inclusive { first, last } pairs. Only asked if needsBusMonitoring()
+  public int[] monitoredReadRanges() {
+    return ALL_ADDRESSES;
+  }
+
+  // Address ranges to monitor writes to, as inclusive { first, last } pairs. Only asked if needsBusMonitoring()
+  public int[] monitoredWriteRanges() {
+    return ALL_ADDRESSES;
+  }
+
+  // For Cartridges that write TIA audio registers by themselves
+  public boolean needsAudioSynch() {
+    return false;
+  }
+
+  // Called by the TIA right before each audio sample and each CPU write to its audio registers
+  public void audioSynch() {
+    // Nothing
+  }
+
+  // Compact binary state of bank selection and extra RAM, without the ROM content
+  public void saveState(ByteBuffer out) {
+    // Nothing
+  }
+
+  public void loadState(ByteBuffer in) {
+    // Nothing
+  }
+
+  public int binaryStateSize() {
+    return 0;
+  }
+
   protected void maskAddress(int address) {
     maskedAddress = address & ADDRESS_MASK;
   }
 
+  // Ranges of all addresses, mirrors included, where (address & mask) == value for any of the { mask, value } pairs given
+  protected static int[] addressRanges(int... maskValuePairs) {
+    int[] ranges = new int[0x10000];
+    int count = 0;
+    int first = -1;
+    for (int address = 0; address <= 0x10000; address++) {
+      boolean match = false;
+      if (address <= 0xffff)
+        for (int p = 0; p < maskValuePairs.length && !match; p += 2)
+          match = (address & maskValuePairs[p]) == maskValuePairs[p + 1];
+      if (match && first < 0) first = address;
+      else if (!match && first >= 0) {
+        ranges[count++] = first; ranges[count++] = address - 1;
+        first = -1;
+      }
+    }
+    return Arrays.copyOf(ranges, count);
+  }
+
   @Override
   public Cartridge clone() {
     try {
@@ -113,6 +167,9 @@ public abstract class Cartridge implements BUS16Bits, ClockDriven, Cloneable, Se
 
   private static final int ADDRESS_MASK = 0x0fff;
 
+  protected static final int[] NO_ADDRESSES = {};
+  protected static final int[] ALL_ADDRESSES = { 0x0000, 0xffff };
+
   public static final long serialVersionUID = 2L;    // Embedded ROM version
 
 }
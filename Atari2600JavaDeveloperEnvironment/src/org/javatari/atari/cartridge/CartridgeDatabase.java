@@ -7,6 +7,7 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 
 import org.javatari.atari.cartridge.formats.Cartridge10K_DPC;
 import org.javatari.atari.cartridge.formats.Cartridge12K_FA;
@@ -41,6 +42,7 @@ public class CartridgeDatabase {
 			boostPriority(option, rom.info);	// adjust priority based on ROM info
 			options.add(option);
 		}
+		boostPriorityBySignatures(options, rom);	// adjust priority based on ROM content
 		Collections.sort(options);		// Sort according to priority
 		return options;
 	}
@@ -125,6 +127,23 @@ public class CartridgeDatabase {
 			formatOption.priority -= FORMAT_PRIORITY_BOOST;
 	}
 
+	// Only the option with the best score found in the ROM content is boosted. Less than info, so names and hints still win
+	private static void boostPriorityBySignatures(List<CartridgeFormatOption> options, ROM rom) {
+		Map<CartridgeFormat, Integer> scores = CartridgeFormatSignatures.scores(rom);
+		if (scores.isEmpty()) return;
+		CartridgeFormatOption best = null;
+		int bestScore = 0;
+		for (CartridgeFormatOption option : options) {
+			Integer score = scores.get(option.format);
+			if (score == null) continue;
+			if (best == null || score > bestScore || (score == bestScore && option.priority < best.priority)) {
+				best = option;
+				bestScore = score;
+			}
+		}
+		if (best != null) best.priority -= SIGNATURE_PRIORITY_BOOST;
+	}
+
 	private static boolean formatMatchesByHint(CartridgeFormat format, String hint) {
 		return hint.matches(HINTS_PREFIX_REGEX + format.id + HINTS_SUFFIX_REGEX);
 	}
@@ -285,6 +304,7 @@ public class CartridgeDatabase {
 	private static final String HINTS_SUFFIX_REGEX = "(|(\\W|_|%20).*)";
 	
 	private static final int FORMAT_PRIORITY_BOOST = 100;
+	private static final int SIGNATURE_PRIORITY_BOOST = 50;
 
 	private static String CARTRIDGE_NAME = Parameters.CARTRIDGE_NAME;
 	private static String CARTRIDGE_LABEL = Parameters.CARTRIDGE_LABEL;
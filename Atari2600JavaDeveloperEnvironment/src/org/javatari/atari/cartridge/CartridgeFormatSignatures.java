@@ -0,0 +1,177 @@
+// Copyright 2011-2012 Paulo Augusto Peccin. See licence.txt distributed with this file.
+
+package org.javatari.atari.cartridge;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.javatari.atari.cartridge.formats.Cartridge12K_FA;
+import org.javatari.atari.cartridge.formats.Cartridge16K_E7;
+import org.javatari.atari.cartridge.formats.Cartridge16K_F6;
+import org.javatari.atari.cartridge.formats.Cartridge24K_28K_32K_FA2;
+import org.javatari.atari.cartridge.formats.Cartridge2K_CV;
+import org.javatari.atari.cartridge.formats.Cartridge32K_F4;
+import org.javatari.atari.cartridge.formats.Cartridge64K_F0;
+import org.javatari.atari.cartridge.formats.Cartridge64K_X07;
+import org.javatari.atari.cartridge.formats.Cartridge8K_0840;
+import org.javatari.atari.cartridge.formats.Cartridge8K_512K_3E;
+import org.javatari.atari.cartridge.formats.Cartridge8K_512K_3F;
+import org.javatari.atari.cartridge.formats.Cartridge8K_512K_SB;
+import org.javatari.atari.cartridge.formats.Cartridge8K_64K_EF;
+import org.javatari.atari.cartridge.formats.Cartridge8K_E0;
+import org.javatari.atari.cartridge.formats.Cartridge8K_F8;
+import org.javatari.atari.cartridge.formats.Cartridge8K_FE;
+import org.javatari.atari.cartridge.formats.Cartridge8K_UA;
+
+
+/**
+ * Scores formats by the bank switching code found in the ROM, like accesses to the hot spots of each format.
+ * All signatures are searched in one pass, and results are cached by ROM hash
+ */
+public final class CartridgeFormatSignatures {
+
+	// Formats with enough signature matches in the ROM, and their scores
+	static Map<CartridgeFormat, Integer> scores(ROM rom) {
+		String hash = rom.info.hash != null ? rom.info.hash : CartridgeInfoLibrary.computeHash(rom.content);
+		synchronized (cache) {
+			Map<CartridgeFormat, Integer> scores = cache.get(hash);
+			if (scores != null) return scores;
+		}
+		SignatureScanner scanner = scanner();
+		int[] counts = scanner.scan(rom.content);
+		Map<CartridgeFormat, Integer> scores = new HashMap<CartridgeFormat, Integer>();
+		for (int s = 0; s < signatures.length; s++) {
+			// Only matches above the ones expected by chance count, as big ROMs have plenty of data that looks like code
+			int keyMatches = aboveChance(scanner, counts, s * 2, rom.content.length);
+			if (keyMatches >= signatures[s].minKeyMatches)
+				scores.put(signatures[s].format, keyMatches + aboveChance(scanner, counts, s * 2 + 1, rom.content.length));
+		}
+		scores = Collections.unmodifiableMap(scores);
+		synchronized (cache) {
+			cache.put(hash, scores);
+		}
+		return scores;
+	}
+
+	// Matches beyond the chance ones and 3 standard deviations from them
+	private static int aboveChance(SignatureScanner scanner, int[] counts, int tag, int length) {
+		double chance = scanner.chanceMatches(tag, length);
+		return Math.max(0, counts[tag] - (int) Math.ceil(chance + 3 * Math.sqrt(chance)));
+	}
+
+	private static synchronized SignatureScanner scanner() {
+		if (scanner == null) {
+			SignatureScanner newScanner = new SignatureScanner(signatures.length * 2);
+			for (int s = 0; s < signatures.length; s++) {
+				for (int[] pattern : signatures[s].keyPatterns) newScanner.add(pattern, s * 2);
+				for (int[] pattern : signatures[s].extraPatterns) newScanner.add(pattern, s * 2 + 1);
+			}
+			newScanner.compile();
+			scanner = newScanner;
+		}
+		return scanner;
+	}
+
+	// Absolute accesses to Cart area addresses, in any of the mirrors
+	private static int[][] hotSpots(int first, int last) {
+		List<int[]> patterns = new ArrayList<int[]>();
+		for (int address = first; address <= last; address++)
+			for (int mirror = 0x1000; mirror <= 0xf000; mirror += 0x2000)
+				addAbsolute(patterns, mirror | (address & 0x0fff));
+		return patterns.toArray(new int[0][]);
+	}
+
+	// Absolute accesses to exact addresses
+	private static int[][] absolute(int... addresses) {
+		List<int[]> patterns = new ArrayList<int[]>();
+		for (int address : addresses)
+			addAbsolute(patterns, address);
+		return patterns.toArray(new int[0][]);
+	}
+
+	private static int[][] zeroPageStores(int address) {
+		List<int[]> patterns = new ArrayList<int[]>();
+		for (int opcode : ZERO_PAGE_STORE_OPCODES)
+			patterns.add(new int[] { opcode, address });
+		return patterns.toArray(new int[0][]);
+	}
+
+	private static void addAbsolute(List<int[]> patterns, int address) {
+		for (int opcode : ABSOLUTE_ACCESS_OPCODES)
+			patterns.add(new int[] { opcode, address & 0xff, address >> 8 });
+	}
+
+	private static int[] range(int first, int last, int step) {
+		int[] addresses = new int[(last - first) / step + 1];
+		for (int i = 0; i < addresses.length; i++)
+			addresses[i] = first + i * step;
+		return addresses;
+	}
+
+
+	private static SignatureScanner scanner;
+
+	private static final Map<String, Map<CartridgeFormat, Integer>> cache = new LinkedHashMap<String, Map<CartridgeFormat, Integer>>(16, 0.75f, true) {
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, Map<CartridgeFormat, Integer>> eldest) {
+			return size() > CACHE_SIZE;
+		}
+		private static final long serialVersionUID = 1L;
+	};
+
+	private static final int CACHE_SIZE = 64;
+
+	// LDA, LDX, LDY, STA, STX, STY, BIT, CMP and NOP
+	private static final int[] ABSOLUTE_ACCESS_OPCODES = { 0xad, 0xae, 0xac, 0x8d, 0x8e, 0x8c, 0x2c, 0xcd, 0x0c };
+	// STA, STX and STY
+	private static final int[] ZERO_PAGE_STORE_OPCODES = { 0x85, 0x86, 0x84 };
+
+	private static final int[][] NONE = {};
+
+	private static final FormatSignature[] signatures = new FormatSignature[] {
+		new FormatSignature(Cartridge8K_F8.FORMAT, 2, hotSpots(0x0ff8, 0x0ff9), NONE),
+		new FormatSignature(Cartridge12K_FA.FORMAT, 2, hotSpots(0x0ff8, 0x0ffa), NONE),
+		new FormatSignature(Cartridge16K_F6.FORMAT, 2, hotSpots(0x0ff6, 0x0ff9), NONE),
+		new FormatSignature(Cartridge32K_F4.FORMAT, 2, hotSpots(0x0ff4, 0x0ffb), NONE),
+		new FormatSignature(Cartridge24K_28K_32K_FA2.FORMAT, 2, hotSpots(0x0ff5, 0x0ffb), NONE),
+		new FormatSignature(Cartridge64K_F0.FORMAT, 2, hotSpots(0x0ff0, 0x0ff0), NONE),
+		new FormatSignature(Cartridge8K_E0.FORMAT, 2, hotSpots(0x0fe0, 0x0ff7), NONE),
+		new FormatSignature(Cartridge16K_E7.FORMAT, 2, hotSpots(0x0fe0, 0x0feb), NONE),
+		new FormatSignature(Cartridge8K_64K_EF.FORMAT, 2, hotSpots(0x0fe0, 0x0fef), NONE),
+		new FormatSignature(Cartridge8K_512K_3F.FORMAT, 2, zeroPageStores(0x3f), NONE),
+		new FormatSignature(Cartridge8K_512K_3E.FORMAT, 2, zeroPageStores(0x3e), zeroPageStores(0x3f)),	// Also switches ROM as 3F
+		new FormatSignature(Cartridge8K_UA.FORMAT, 2, absolute(0x0220, 0x0240), NONE),
+		new FormatSignature(Cartridge8K_0840.FORMAT, 2, absolute(0x0800, 0x0840), NONE),
+		new FormatSignature(Cartridge8K_512K_SB.FORMAT, 2, absolute(range(0x0800, 0x083f, 1)), NONE),
+		new FormatSignature(Cartridge64K_X07.FORMAT, 2, absolute(range(0x080d, 0x08fd, 0x10)), NONE),
+		new FormatSignature(Cartridge8K_FE.FORMAT, 1, new int[][] {				// Subroutine calls across banks, as in the known ROMs
+				{ 0x20, 0x00, 0xd0, 0xc6, 0xc5 },		// JSR $D000; DEC $C5
+				{ 0x20, 0xc3, 0xf8, 0xa5, 0x82 },		// JSR $F8C3; LDA $82
+				{ 0xd0, 0xfb, 0x20, 0x73, 0xfe },		// BNE -5; JSR $FE73
+				{ 0x20, 0x00, 0xf0, 0x84, 0xd6 }		// JSR $F000; STY $D6
+		}, NONE),
+		new FormatSignature(Cartridge2K_CV.FORMAT, 1, new int[][] {				// Writes to the RAM area
+				{ 0x9d, 0xff, 0xf3 },					// STA $F3FF,X
+				{ 0x99, 0x00, 0xf4 }					// STA $F400,Y
+		}, NONE)
+	};
+
+
+	private static final class FormatSignature {
+		FormatSignature(CartridgeFormat format, int minKeyMatches, int[][] keyPatterns, int[][] extraPatterns) {
+			this.format = format;
+			this.minKeyMatches = minKeyMatches;
+			this.keyPatterns = keyPatterns;
+			this.extraPatterns = extraPatterns;
+		}
+		final CartridgeFormat format;
+		final int minKeyMatches;		// Format is considered only with at least these key matches
+		final int[][] keyPatterns;
+		final int[][] extraPatterns;	// Only add to the score
+	}
+
+}
@@ -18,8 +18,7 @@ public class CartridgeInfoLibrary {
 	}
 
 	static CartridgeInfo getInfo(String romHash) {
-		if (library == null) initLibrary();
-		CartridgeInfo info = library.get(romHash);
+		CartridgeInfo info = library().get(romHash);
 		if (info != null) {
 			System.out.println("Cartridge: " + info.name);
 			return info;
@@ -31,19 +30,24 @@ public class CartridgeInfoLibrary {
 	}
 	
 	static String computeHash(byte[] content) {
-		if (digest == null)
-			try {
-				digest = MessageDigest.getInstance("MD5");
-			} catch (NoSuchAlgorithmException e) {
-				System.out.println("Could not create MD5 Digest");
-				return "NO_HASH";	// give up
-			}
-		digest.reset();
+		// A new Digest each time, as ROMs may be created by many Threads at once
+		MessageDigest digest;
+		try {
+			digest = MessageDigest.getInstance("MD5");
+		} catch (NoSuchAlgorithmException e) {
+			System.out.println("Could not create MD5 Digest");
+			return "NO_HASH";	// give up
+		}
 		digest.update(content);
 		BigInteger d = new BigInteger(1, digest.digest());
 		return String.format("%032x", d);
 	}
 	
+	private static synchronized HashMap<String, CartridgeInfo> library() {
+		if (library == null) initLibrary();
+		return library;
+	}
+
 	private static void initLibrary() {
 		library = new HashMap<String, CartridgeInfo>();
 		try {
@@ -62,6 +66,4 @@ public class CartridgeInfoLibrary {
 	
 	private static HashMap<String, CartridgeInfo> library;
 	
-	private static MessageDigest digest;
-	
 }
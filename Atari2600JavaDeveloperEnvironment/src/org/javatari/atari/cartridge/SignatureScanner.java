@@ -0,0 +1,135 @@
+// Copyright 2011-2012 Paulo Augusto Peccin. See licence.txt distributed with this file.
+
+package org.javatari.atari.cartridge;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+
+/**
+ * Counts occurrences of many byte patterns in a single pass over the content (Aho-Corasick automaton).
+ * Each pattern is counted for a tag. Patterns are added first, then the automaton is compiled to a full transition table
+ */
+public final class SignatureScanner {
+
+	public SignatureScanner(int tags) {
+		this.tags = tags;
+		chance = new double[tags];
+		newState();		// Root
+	}
+
+	// Bytes in the pattern are unsigned, 0 - 255
+	public void add(int[] pattern, int tag) {
+		if (next != null) throw new IllegalStateException("Signature Scanner already compiled");
+		if (tag >= tags) throw new IllegalStateException("Signature tag out of range");
+		int state = 0;
+		for (int b : pattern) {
+			int child = rows.get(state)[b];
+			if (child < 0) {
+				child = newState();
+				rows.get(state)[b] = child;
+			}
+			state = child;
+		}
+		outputs.set(state, addTag(outputs.get(state), tag));
+		chance[tag] += Math.pow(256, -pattern.length);
+	}
+
+	// Matches of the tag expected by chance in random content of the given length
+	public double chanceMatches(int tag, int length) {
+		return chance[tag] * length;
+	}
+
+	// Fills the missing transitions following the failure links, breadth first, so each byte scanned is one table access
+	public void compile() {
+		int states = rows.size();
+		int[] fail = new int[states];
+		int[] queue = new int[states];
+		int head = 0, tail = 0;
+		int[] root = rows.get(0);
+		for (int b = 0; b < 256; b++) {
+			if (root[b] < 0) root[b] = 0;
+			else queue[tail++] = root[b];
+		}
+		while (head < tail) {
+			int state = queue[head++];
+			int[] row = rows.get(state);
+			int[] failRow = rows.get(fail[state]);
+			for (int b = 0; b < 256; b++) {
+				int child = row[b];
+				if (child < 0) {
+					row[b] = failRow[b];
+					continue;
+				}
+				fail[child] = failRow[b];
+				int[] inherited = outputs.get(fail[child]);
+				if (inherited != null)
+					for (int tag : inherited) outputs.set(child, addTag(outputs.get(child), tag));
+				queue[tail++] = child;
+			}
+		}
+		// Transitions hold the start of the target row, with the low bit set if the target has matches
+		next = new int[states << 8];
+		for (int s = 0; s < states; s++) {
+			int[] row = rows.get(s);
+			for (int b = 0; b < 256; b++)
+				next[(s << 8) | b] = (row[b] << 8) | (outputs.get(row[b]) != null ? 1 : 0);
+		}
+		output = outputs.toArray(new int[states][]);
+		for (int b = 0; b < 256; b++)
+			leavesRoot[b] = next[b] != 0;
+		rows = null;
+		outputs = null;
+	}
+
+	// Returns the number of matches of each tag, overlapping ones included
+	public int[] scan(byte[] content) {
+		if (next == null) throw new IllegalStateException("Signature Scanner not compiled");
+		// Locals, as the counts stores could otherwise force the fields to be reloaded
+		final int[] next = this.next;
+		final boolean[] leavesRoot = this.leavesRoot;
+		final int length = content.length;
+		int[] counts = new int[tags];
+		int row = 0;
+		int i = 0;
+		while (i < length) {
+			// At the root most bytes lead back to it, so those are skipped without following the table
+			if (row == 0) {
+				while (i < length && !leavesRoot[content[i] & 0xff]) i++;
+				if (i == length) break;
+			}
+			int target = next[row | (content[i++] & 0xff)];
+			row = target & ~0xff;
+			if ((target & 1) != 0)
+				for (int tag : output[target >>> 8]) counts[tag]++;
+		}
+		return counts;
+	}
+
+	private int newState() {
+		int[] row = new int[256];
+		Arrays.fill(row, -1);
+		rows.add(row);
+		outputs.add(null);
+		return rows.size() - 1;
+	}
+
+	private static int[] addTag(int[] tags, int tag) {
+		if (tags == null) return new int[] { tag };
+		for (int t : tags)
+			if (t == tag) return tags;
+		int[] newTags = Arrays.copyOf(tags, tags.length + 1);
+		newTags[tags.length] = tag;
+		return newTags;
+	}
+
+
+	private final int tags;
+	private final double[] chance;
+	private ArrayList<int[]> rows = new ArrayList<int[]>();
+	private ArrayList<int[]> outputs = new ArrayList<int[]>();
+	private int[] next;			// 256 transitions per state, see compile
+	private int[][] output;		// Tags matched when entering each state, or null
+	private final boolean[] leavesRoot = new boolean[256];
+
+}
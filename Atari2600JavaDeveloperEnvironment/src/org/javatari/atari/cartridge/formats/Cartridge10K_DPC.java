@@ -2,6 +2,8 @@
 
 package org.javatari.atari.cartridge.formats;
 
+import java.nio.ByteBuffer;
+
 import org.javatari.atari.board.BUS;
 import org.javatari.atari.cartridge.Cartridge;
 import org.javatari.atari.cartridge.CartridgeFormat;
@@ -11,6 +13,7 @@ import org.javatari.atari.controls.ConsoleControls.Control;
 
 /**
  * Implements the 8K + 2K "DPC" (Pitfall2) format
+ * The audio clock is not pulsed every CPU cycle. Its pulses are caught up from the TIA cycle count when the DPC is accessed
  */
 public class Cartridge10K_DPC extends CartridgeBankedByMaskedRange {
 
@@ -21,18 +24,16 @@ public class Cartridge10K_DPC extends CartridgeBankedByMaskedRange {
 	@Override
 	public void connectBus(BUS bus) {
 		this.bus = bus;
-	}
-
-	@Override
-	public boolean needsClock() {
-		return true;
+		audioClockLastCycle = bus.tia.cpuCycles();
 	}
 
 	@Override
 	public byte readByte(int address) {
 		maskAddress(address);
-		if (maskedAddress <= 0x03f || (maskedAddress >= 0x800 && maskedAddress <= 0x83f))	// DPC register read
+		if (maskedAddress <= 0x03f || (maskedAddress >= 0x800 && maskedAddress <= 0x83f)) {	// DPC register read
+			audioClockCatchUp();
 			return readDPCRegister(maskedAddress & 0x00ff);
+		}
 		// Always add the correct bank offset
 		return bytes[bankAddressOffset + maskedAddress];	// ROM	
 	}
@@ -41,28 +42,16 @@ public class Cartridge10K_DPC extends CartridgeBankedByMaskedRange {
 	public void writeByte(int address, byte b) {
 		maskAddress(address);
 		if ((maskedAddress >= 0x040 && maskedAddress <= 0x07f) ||
-			(maskedAddress >= 0x840 && maskedAddress <= 0x87f))		// DPC register write
+			(maskedAddress >= 0x840 && maskedAddress <= 0x87f)) {	// DPC register write
+			audioClockCatchUp();
 			writeDPCRegister(maskedAddress & 0x00ff, b);
-	}
-	
-	@Override
-	public void clockPulse() {
-		if (audioClockCounter-- > 0) return;
-		audioClockCounter = audioClockDivider;
-		for (int f = 5; f <= 7; f++) {
-			if (!audioMode[f]) continue;
-			fetcherPointer[f]--;
-			if ((fetcherPointer[f] & 0x00ff) == 0xff) 
-				setFetcherPointer(f, fetcherPointer[f] & 0xff00 | fetcherStart[f]);
-			updateFetcherMask(f);
-			if (!audioChanged) audioChanged = true;
 		}
-		
 	}
-
+	
 	@Override
 	public void controlStateChanged(Control control, boolean state) {
 		if (!state) return;
+		audioClockCatchUp();		// Pulses so far run with the old divider
 		switch (control) {
 			case CARTRIDGE_CLOCK_DEC:
 				if (audioClockDivider < 150) audioClockDivider++; 
@@ -174,6 +163,40 @@ public class Cartridge10K_DPC extends CartridgeBankedByMaskedRange {
 		// 0x78 - 0x7f Not used
 	}
 
+	// Runs at once all audio clock pulses since the last catch up, as if pulsed every CPU cycle
+	protected void audioClockCatchUp() {
+		long now = bus.tia.cpuCycles();
+		long elapsed = now - audioClockLastCycle;
+		audioClockLastCycle = now;
+		if (elapsed <= audioClockCounter) {
+			if (elapsed > 0) audioClockCounter -= elapsed;
+			return;
+		}
+		// A pulse every divider + 1 cycles, the first when the counter runs out
+		elapsed -= audioClockCounter + 1;
+		int period = audioClockDivider + 1;
+		long pulses = 1 + elapsed / period;
+		audioClockCounter = audioClockDivider - (int) (elapsed % period);
+		boolean changed = false;
+		for (int f = 5; f <= 7; f++) {
+			if (!audioMode[f]) continue;
+			for (long p = pulses; p > 0; p--) {
+				fetcherPointer[f]--;
+				if ((fetcherPointer[f] & 0x00ff) == 0xff) 
+					setFetcherPointer(f, fetcherPointer[f] & 0xff00 | fetcherStart[f]);
+				updateFetcherMask(f);
+			}
+			changed = true;
+		}
+		if (changed) audioChanged = true;
+		if (audioChanged) audioClockPulsedWithChange();
+	}
+
+	// After audio clock pulses with the audio output not updated yet, in the state left by the last pulse
+	protected void audioClockPulsedWithChange() {
+		// Nothing
+	}
+
 	private void setFetcherPointer(int f, int pointer) {
 		fetcherPointer[f] = pointer;
 	}
@@ -211,8 +234,49 @@ public class Cartridge10K_DPC extends CartridgeBankedByMaskedRange {
 			String.format("DPC Audio Clock: ~%.1f kHz", 1194720f / audioClockDivider / 1000), true);
 	}
 
+	@Override
+	public void saveState(ByteBuffer out) {
+		if (bus != null) audioClockCatchUp();
+		super.saveState(out);
+		out.put(randomNumber);
+		for (int f = 0; f < 8; f++) {
+			out.putShort((short) fetcherPointer[f]);
+			out.put(fetcherStart[f]);
+			out.put(fetcherEnd[f]);
+			out.put(fetcherMask[f]);
+			out.put((byte) (audioMode[f] ? 1 : 0));
+		}
+		out.putInt(audioClockCounter);
+		out.put((byte) (audioChanged ? 1 : 0));
+		out.put(audioOutput);
+	}
+
+	@Override
+	public void loadState(ByteBuffer in) {
+		super.loadState(in);
+		randomNumber = in.get();
+		for (int f = 0; f < 8; f++) {
+			fetcherPointer[f] = in.getShort();
+			fetcherStart[f] = in.get();
+			fetcherEnd[f] = in.get();
+			fetcherMask[f] = in.get();
+			audioMode[f] = in.get() != 0;
+		}
+		audioClockCounter = in.getInt();
+		audioChanged = in.get() != 0;
+		audioOutput = in.get();
+		if (bus != null) audioClockLastCycle = bus.tia.cpuCycles();
+	}
+
+	@Override
+	public int binaryStateSize() {
+		return super.binaryStateSize() + 1 + 8 * 6 + 6;
+	}
+
 	@Override
 	public Cartridge10K_DPC clone() {
+		// Clones go into serialized states, so the audio clock pulses due must be in
+		if (bus != null) audioClockCatchUp();
 		Cartridge10K_DPC clone = (Cartridge10K_DPC)super.clone();
 		clone.fetcherPointer = fetcherPointer.clone();
 		clone.fetcherStart = fetcherStart.clone();
@@ -233,6 +297,7 @@ public class Cartridge10K_DPC extends CartridgeBankedByMaskedRange {
 	private boolean[] audioMode = new boolean[8];
 	private int audioClockDivider = AUDIO_CLOCK_DEFAULT_DIVIDER;
 	private int audioClockCounter = 0;
+	private long audioClockLastCycle = 0;
 	protected boolean audioChanged = true;
 	protected byte audioOutput = 0;
 	
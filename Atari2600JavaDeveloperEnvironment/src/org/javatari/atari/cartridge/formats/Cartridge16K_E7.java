@@ -2,6 +2,8 @@
 
 package org.javatari.atari.cartridge.formats;
 
+import java.nio.ByteBuffer;
+
 import org.javatari.atari.cartridge.Cartridge;
 import org.javatari.atari.cartridge.CartridgeFormat;
 import org.javatari.atari.cartridge.CartridgeFormatOption;
@@ -25,11 +27,8 @@ public final class Cartridge16K_E7 extends CartridgeBanked {
 		// Check for Extra RAM Slice0
 		if (extraRAMSlice0Active && maskedAddress >= 0x0400 && maskedAddress <= 0x07ff)
 			return extraRAM[maskedAddress - 0x0400];
-		// ROM			
-		if (maskedAddress < ROM_FIXED_SLICE_START)
-			return bytes[bankAddressOffset + maskedAddress];		// ROM Selectable Slice
-		else
-			return bytes[ROM_FIXED_SLICE_OFFSET + maskedAddress];	// ROM Fixed Slice
+		// ROM Selectable or Fixed Slice
+		return readSlice();
 	}
 
 	@Override
@@ -44,19 +43,49 @@ public final class Cartridge16K_E7 extends CartridgeBanked {
 	}
 
 	@Override
-	protected void performBankSwitchOnMaskedAddress() {
-		// Check if address is within range of bank selection
-		if (maskedAddress < 0x0fe0 || maskedAddress > 0x0feb)
-			return;
+	protected void declareHotSpots() {
+		hotSpots(0x0fe0, 0x0feb);
+	}
 
-		if (/* maskedAddress >= 0x0fe0 && */ maskedAddress <= 0x0fe6)	// Selectable ROM Slice
+	@Override
+	protected void performBankSwitchOnMaskedAddress() {
+		if (/* maskedAddress >= 0x0fe0 && */ maskedAddress <= 0x0fe6) {	// Selectable ROM Slice
 			bankAddressOffset = BANK_SIZE * (maskedAddress - 0x0fe0);
-		else if (maskedAddress == 0x0fe7)								// Extra RAM Slice0
+			updateSlices();
+		} else if (maskedAddress == 0x0fe7)								// Extra RAM Slice0
 				extraRAMSlice0Active = true;							
-			else if (/* maskedAddress >= 0x0fe8 && */ maskedAddress <= 0x0feb)	// Extra RAM Slice1
+			else /* if (maskedAddress >= 0x0fe8 && maskedAddress <= 0x0feb) */	// Extra RAM Slice1
 					extraRAMSlice1Offset = EXTRA_RAM_SLICE1_START + EXTRA_RAM_SLICE1_BANK_SIZE * (maskedAddress - 0x0fe8);
 	}
 
+	@Override
+	protected void updateSlices() {
+		mapSlices(0, 1, bankAddressOffset);
+		mapSlices(2, 3, ROM_FIXED_SLICE_OFFSET + ROM_FIXED_SLICE_START);
+	}
+
+	@Override
+	public void saveState(ByteBuffer out) {
+		super.saveState(out);
+		out.put(extraRAM);
+		out.put((byte) (extraRAMSlice0Active ? 1 : 0));
+		out.putInt(extraRAMSlice1Offset);
+	}
+
+	@Override
+	public void loadState(ByteBuffer in) {
+		super.loadState(in);
+		in.get(extraRAM);
+		extraRAMSlice0Active = in.get() != 0;
+		extraRAMSlice1Offset = in.getInt();
+		updateSlices();
+	}
+
+	@Override
+	public int binaryStateSize() {
+		return super.binaryStateSize() + extraRAM.length + 5;
+	}
+
 	@Override
 	public Cartridge16K_E7 clone() {
 		Cartridge16K_E7 clone = (Cartridge16K_E7)super.clone();
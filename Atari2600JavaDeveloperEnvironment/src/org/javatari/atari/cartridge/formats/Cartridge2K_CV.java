@@ -2,6 +2,8 @@
 
 package org.javatari.atari.cartridge.formats;
 
+import java.nio.ByteBuffer;
+
 import org.javatari.atari.cartridge.Cartridge;
 import org.javatari.atari.cartridge.CartridgeFormat;
 import org.javatari.atari.cartridge.CartridgeFormatOption;
@@ -37,7 +39,21 @@ public final class Cartridge2K_CV extends Cartridge {
 		if (maskedAddress >= 0x0400 && maskedAddress <= 0x07ff)
 			extraRAM[maskedAddress - 0x0400] = b;
 	}
-		
+
+	@Override
+	public void saveState(ByteBuffer out) {
+		out.put(extraRAM);
+	}
+
+	@Override
+	public void loadState(ByteBuffer in) {
+		in.get(extraRAM);
+	}
+
+	@Override
+	public int binaryStateSize() {
+		return extraRAM.length;
+	}
 
 	@Override
 	public Cartridge2K_CV clone() {
@@ -16,6 +16,11 @@ public final class Cartridge64K_F0 extends CartridgeBanked {
 		super(rom, FORMAT);
 	}
 
+	@Override
+	protected void declareHotSpots() {
+		hotSpots(BANKSW_ADDRESS, BANKSW_ADDRESS);
+	}
+
 	@Override
 	protected void performBankSwitchOnMaskedAddress() {
 		if (maskedAddress == BANKSW_ADDRESS) {	// Bank selection. Increments bank
@@ -23,11 +23,22 @@ public class Cartridge64K_X07 extends CartridgeBankedByBusMonitoring {
 		else if (bankAddressOffset >= BANK_14_ADDRESS && (address & 0x1880) == 0x0000) 	// Method 2, only if at bank 14 or 15
 			bankAddressOffset = ((address & 0x0040) == 0 ? 14 : 15) * BANK_SIZE;	// Pick bank 14 or 15 from bit 6
 	}
+
+	@Override
+	public int[] monitoredReadRanges() {
+		return MONITORED_RANGES;
+	}
+
+	@Override
+	public int[] monitoredWriteRanges() {
+		return MONITORED_RANGES;
+	}
 	
 
 	protected static final int BANK_SIZE = 4096;
 	protected static final int BANK_14_ADDRESS = 14 * BANK_SIZE;
 	protected static final int SIZE = 16 * BANK_SIZE;
+	private static final int[] MONITORED_RANGES = addressRanges(0x180f, 0x080d, 0x1880, 0x0000);		// Method 1 and Method 2 addresses
 
 	public static final CartridgeFormat FORMAT = new CartridgeFormat("X07", "64K AtariAge") {
 		@Override
@@ -25,10 +25,21 @@ public class Cartridge8K_0840 extends CartridgeBankedByBusMonitoring {
 			if (bankAddressOffset != BANK_SIZE) bankAddressOffset = BANK_SIZE;
 		}
 	}
+
+	@Override
+	public int[] monitoredReadRanges() {
+		return MONITORED_RANGES;
+	}
+
+	@Override
+	public int[] monitoredWriteRanges() {
+		return MONITORED_RANGES;
+	}
 	
 
 	protected static final int BANK_SIZE = 4096;
 	protected static final int SIZE = 2 * BANK_SIZE;
+	private static final int[] MONITORED_RANGES = addressRanges(0x1800, 0x0800);		// 0x0800 and 0x0840 mirrors
 
 	public static final CartridgeFormat FORMAT = new CartridgeFormat("0840", "8K Econobanking") {
 		@Override
@@ -2,6 +2,8 @@
 
 package org.javatari.atari.cartridge.formats;
 
+import java.nio.ByteBuffer;
+
 import org.javatari.atari.cartridge.Cartridge;
 import org.javatari.atari.cartridge.CartridgeFormat;
 import org.javatari.atari.cartridge.CartridgeFormatOption;
@@ -20,13 +22,10 @@ public final class Cartridge8K_512K_3E extends Cartridge8K_512K_3F {
 	@Override
 	public byte readByte(int address) {		
 		maskAddress(address);
-		if (maskedAddress >= FIXED_SLICE_START_ADDRESS)							// ROM Fixed Slice
-			return bytes[fixedSliceAddressOffset + maskedAddress];	
+		if (extraRAMBankAddressOffset >= 0 && maskedAddress < 0x0400)		// RAM 
+			return extraRAM[extraRAMBankAddressOffset + maskedAddress];
 		else
-			if (extraRAMBankAddressOffset >= 0 && maskedAddress < 0x0400)		// RAM 
-				return extraRAM[extraRAMBankAddressOffset + maskedAddress];
-			else
-				return bytes[bankAddressOffset + maskedAddress];				// ROM Selectable Slice	
+			return readSlice();											// ROM Selectable or Fixed Slice	
 	}
 
 	@Override
@@ -40,6 +39,11 @@ public final class Cartridge8K_512K_3E extends Cartridge8K_512K_3F {
 			extraRAM[extraRAMBankAddressOffset + maskedAddress - 0x0400] = b;
 	}
 		
+	@Override
+	public int[] monitoredWriteRanges() {
+		return WRITE_RANGES;
+	}
+
 	@Override
 	public void monitorByteWritten(int address, byte data) {
 		// Perform ROM bank switching as needed
@@ -47,6 +51,7 @@ public final class Cartridge8K_512K_3E extends Cartridge8K_512K_3F {
 			int bank = data & 0xff;		// unsigned
 			if (bank <= selectableSliceMaxBank) {
 				bankAddressOffset = bank * BANK_SIZE;
+				updateSlices();
 				extraRAMBankAddressOffset = -1;
 			}
 			return;
@@ -68,6 +73,28 @@ public final class Cartridge8K_512K_3E extends Cartridge8K_512K_3F {
 		extraRAM = newExtraRAM;
 	}
 
+	@Override
+	public void saveState(ByteBuffer out) {
+		super.saveState(out);
+		out.putInt(extraRAMBankAddressOffset);
+		out.putInt(extraRAM.length);
+		out.put(extraRAM);
+	}
+
+	@Override
+	public void loadState(ByteBuffer in) {
+		super.loadState(in);
+		extraRAMBankAddressOffset = in.getInt();
+		int size = in.getInt();
+		if (size != extraRAM.length) extraRAM = new byte[size];
+		in.get(extraRAM);
+	}
+
+	@Override
+	public int binaryStateSize() {
+		return super.binaryStateSize() + 8 + extraRAM.length;
+	}
+
 	@Override
 	public Cartridge8K_512K_3E clone() {
 		Cartridge8K_512K_3E clone = (Cartridge8K_512K_3E)super.clone();
@@ -81,6 +108,7 @@ public final class Cartridge8K_512K_3E extends Cartridge8K_512K_3F {
 
 
 	private static final int EXTRA_RAM_BANK_SIZE = 1024;
+	private static final int[] WRITE_RANGES = { 0x003e, 0x003f };
 
 	public static final CartridgeFormat FORMAT = new CartridgeFormat("3E", "8K-512K Tigervision (+RAM)") {
 		@Override
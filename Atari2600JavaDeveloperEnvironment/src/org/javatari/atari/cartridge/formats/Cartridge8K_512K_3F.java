@@ -2,6 +2,8 @@
 
 package org.javatari.atari.cartridge.formats;
 
+import java.nio.ByteBuffer;
+
 import org.javatari.atari.cartridge.Cartridge;
 import org.javatari.atari.cartridge.CartridgeFormat;
 import org.javatari.atari.cartridge.CartridgeFormatOption;
@@ -21,10 +23,8 @@ public class Cartridge8K_512K_3F extends CartridgeBankedByBusMonitoring {
 	@Override
 	public byte readByte(int address) {		
 		maskAddress(address);
-		if (maskedAddress >= FIXED_SLICE_START_ADDRESS)			// Fixed slice
-			return bytes[fixedSliceAddressOffset + maskedAddress];	
-		else
-			return bytes[bankAddressOffset + maskedAddress];	// Selectable slice	
+		// Selectable or Fixed slice
+		return readSlice();
 	}
 
 	@Override
@@ -32,13 +32,25 @@ public class Cartridge8K_512K_3F extends CartridgeBankedByBusMonitoring {
 		// Nothing
 	}
 
+	@Override
+	public int[] monitoredReadRanges() {
+		return NO_ADDRESSES;
+	}
+
+	@Override
+	public int[] monitoredWriteRanges() {
+		return WRITE_RANGES;
+	}
+
 	@Override
 	public void monitorByteWritten(int address, byte data) {
 		// Perform bank switching as needed
 		if (address <= 0x003f) {
 			int bank = data & 0xff;		// unsigned
-			if (bank <= selectableSliceMaxBank)
+			if (bank <= selectableSliceMaxBank) {
 				bankAddressOffset = bank * BANK_SIZE;
+				updateSlices();
+			}
 		}
 	}
 
@@ -47,6 +59,18 @@ public class Cartridge8K_512K_3F extends CartridgeBankedByBusMonitoring {
 		// Bank switching is done only on monitored writes
 	}
 
+	@Override
+	protected void updateSlices() {
+		mapSlices(0, 1, bankAddressOffset);
+		mapSlices(2, 3, fixedSliceAddressOffset + FIXED_SLICE_START_ADDRESS);
+	}
+
+	@Override
+	public void loadState(ByteBuffer in) {
+		super.loadState(in);
+		updateSlices();
+	}
+
 	protected final int selectableSliceMaxBank; 
 	protected final int fixedSliceAddressOffset;		// This slice is fixed at the last bank 
 
@@ -55,6 +79,7 @@ public class Cartridge8K_512K_3F extends CartridgeBankedByBusMonitoring {
 	protected static final int MIN_SIZE = 4 * BANK_SIZE;
 	protected static final int MAX_SIZE = 256 * BANK_SIZE;
 	protected static final int FIXED_SLICE_START_ADDRESS = 2048;
+	private static final int[] WRITE_RANGES = { 0x0000, 0x003f };		// TIA area, but only unmirrored
 
 	public static final CartridgeFormat FORMAT = new CartridgeFormat("3F", "8K-512K Tigervision") {
 		@Override
@@ -25,6 +25,16 @@ public class Cartridge8K_512K_SB extends CartridgeBankedByBusMonitoring {
 		if (bank > maxBank) return;
 		bankAddressOffset = bank * BANK_SIZE;
 	}
+
+	@Override
+	public int[] monitoredReadRanges() {
+		return MONITORED_RANGES;
+	}
+
+	@Override
+	public int[] monitoredWriteRanges() {
+		return MONITORED_RANGES;
+	}
 	
 
 	private final int maxBank;
@@ -32,6 +42,7 @@ public class Cartridge8K_512K_SB extends CartridgeBankedByBusMonitoring {
 	protected static final int BANK_SIZE = 4096;
 	protected static final int MIN_SIZE = 2 * BANK_SIZE;
 	protected static final int MAX_SIZE = 64 * BANK_SIZE;
+	private static final int[] MONITORED_RANGES = addressRanges(0x1800, 0x0800);
 
 	public static final CartridgeFormat FORMAT = new CartridgeFormat("SB", "8K-512K Superbanking") {
 		@Override
@@ -2,6 +2,8 @@
 
 package org.javatari.atari.cartridge.formats;
 
+import java.nio.ByteBuffer;
+
 import org.javatari.atari.cartridge.Cartridge;
 import org.javatari.atari.cartridge.CartridgeFormat;
 import org.javatari.atari.cartridge.CartridgeFormatOption;
@@ -20,29 +22,55 @@ public final class Cartridge8K_E0 extends CartridgeBanked {
 	public byte readByte(int address) {		
 		maskAddress(address);
 		// Always add the correct offset to access bank selected on the corresponding slice
-		if (maskedAddress < 0x0400)		// Slice 0
-			return bytes[slice0AddressOffset + maskedAddress];
-		if (maskedAddress < 0x0800)		// Slice 1
-			return bytes[slice1AddressOffset + maskedAddress - 0x0400];
-		if (maskedAddress < 0x0c00)		// Slice 2
-			return bytes[slice2AddressOffset + maskedAddress - 0x0800];
-		// Slice 3 (0x0c00 - 0x0fff) is always at 0x1c00 (bank 7)
-		return bytes[0x1000 + maskedAddress];	
+		return readSlice();
+	}
+
+	@Override
+	protected void declareHotSpots() {
+		hotSpots(0x0fe0, 0x0ff7);
 	}
 
 	@Override
 	protected void performBankSwitchOnMaskedAddress() {
-		// Check if address is within range of bank selection
-		if (maskedAddress < 0x0fe0 || maskedAddress > 0x0ff7)
-			return;
-					
 		// Each bank is 0x0400 bytes each, 0 to 7
 		if (/* maskedAddress >= 0x0fe0 && */ maskedAddress <= 0x0fe7)	// Slice 0 bank selection
 			slice0AddressOffset = (maskedAddress - 0x0fe0) * 0x0400;
 		else if (/* maskedAddress >= 0x0fe8 && */ maskedAddress <= 0x0fef)	// Slice 1 bank selection
 				slice1AddressOffset = (maskedAddress - 0x0fe8) * 0x0400;
-			else if (/* maskedAddress >= 0x0ff0 && */ maskedAddress <= 0x0ff7)	// Slice 2 bank selection
+			else /* if (maskedAddress >= 0x0ff0 && maskedAddress <= 0x0ff7) */	// Slice 2 bank selection
 				slice2AddressOffset = (maskedAddress - 0x0ff0) * 0x0400;
+		updateSlices();
+	}
+
+	@Override
+	protected void updateSlices() {
+		mapSlices(0, 0, slice0AddressOffset);
+		mapSlices(1, 1, slice1AddressOffset);
+		mapSlices(2, 2, slice2AddressOffset);
+		// Slice 3 (0x0c00 - 0x0fff) is always at 0x1c00 (bank 7)
+		mapSlices(3, 3, 0x1c00);
+	}
+
+	@Override
+	public void saveState(ByteBuffer out) {
+		super.saveState(out);
+		out.putInt(slice0AddressOffset);
+		out.putInt(slice1AddressOffset);
+		out.putInt(slice2AddressOffset);
+	}
+
+	@Override
+	public void loadState(ByteBuffer in) {
+		super.loadState(in);
+		slice0AddressOffset = in.getInt();
+		slice1AddressOffset = in.getInt();
+		slice2AddressOffset = in.getInt();
+		updateSlices();
+	}
+
+	@Override
+	public int binaryStateSize() {
+		return super.binaryStateSize() + 12;
 	}
 	
 
@@ -24,10 +24,21 @@ public class Cartridge8K_UA extends CartridgeBankedByBusMonitoring {
 			if (bankAddressOffset != BANK_SIZE) bankAddressOffset = BANK_SIZE;
 		}
 	}
+
+	@Override
+	public int[] monitoredReadRanges() {
+		return MONITORED_RANGES;
+	}
+
+	@Override
+	public int[] monitoredWriteRanges() {
+		return MONITORED_RANGES;
+	}
 	
 
 	protected static final int BANK_SIZE = 4096;
 	protected static final int SIZE = 2 * BANK_SIZE;
+	private static final int[] MONITORED_RANGES = { 0x0220, 0x0220, 0x0240, 0x0240 };
 
 	public static final CartridgeFormat FORMAT = new CartridgeFormat("UA", "8K UA Limited") {
 		@Override
@@ -2,6 +2,8 @@
 
 package org.javatari.atari.cartridge.formats;
 
+import java.nio.ByteBuffer;
+
 import org.javatari.atari.cartridge.Cartridge;
 import org.javatari.atari.cartridge.CartridgeFormat;
 import org.javatari.atari.cartridge.ROM;
@@ -9,6 +11,8 @@ import org.javatari.atari.cartridge.ROM;
 /**
  * Implements the generic bank switching method with address offset
  * Used by several n * xK bank formats
+ * Formats declare their hot spot addresses, so only accesses to those test for bank switching.
+ * Formats with more than one slice keep a page table with the ROM offset of each 1K slice
  */
 public abstract class CartridgeBanked extends Cartridge {
 
@@ -26,14 +30,79 @@ public abstract class CartridgeBanked extends Cartridge {
 	@Override
 	public void maskAddress(int address) {
 		super.maskAddress(address);
-		// Perform bank switching as needed 
-		performBankSwitchOnMaskedAddress();
+		// Tables are not serialized. Built on the first access, also after a state is deserialized
+		if (hotSpots == null) buildTables();
+		// Perform bank switching as needed, only on the hot spots declared
+		if ((hotSpots[maskedAddress >>> 6] & (1L << maskedAddress)) != 0)
+			performBankSwitchOnMaskedAddress();
+	}
+
+	// Formats declare here, with hotSpots(first, last), the masked addresses that may switch banks
+	protected void declareHotSpots() {
+		// None
+	}
+
+	// Formats with more than one slice map the current banks here, with mapSlices
+	protected void updateSlices() {
+		// None
+	}
+
+	protected void hotSpots(int first, int last) {
+		for (int a = first; a <= last; a++)
+			hotSpots[a >>> 6] |= 1L << a;
+	}
+
+	// Reads through the page table, for formats with more than one slice
+	protected byte readSlice() {
+		return bytes[sliceOffsets[maskedAddress >>> SLICE_SHIFT] + maskedAddress];
+	}
+
+	// Maps masked addresses from the start of the first slice to the end of the last one, to ROM starting at romOffset
+	protected void mapSlices(int firstSlice, int lastSlice, int romOffset) {
+		if (sliceOffsets == null) return;		// Will be mapped from the current banks when built
+		int offset = romOffset - (firstSlice << SLICE_SHIFT);
+		for (int s = firstSlice; s <= lastSlice; s++)
+			sliceOffsets[s] = offset;
 	}
 		
+	@Override
+	public void saveState(ByteBuffer out) {
+		out.putInt(bankAddressOffset);
+	}
+
+	@Override
+	public void loadState(ByteBuffer in) {
+		bankAddressOffset = in.getInt();
+	}
+
+	@Override
+	public int binaryStateSize() {
+		return 4;
+	}
+
+	@Override
+	public CartridgeBanked clone() {
+		CartridgeBanked clone = (CartridgeBanked)super.clone();
+		if (sliceOffsets != null) clone.sliceOffsets = sliceOffsets.clone();
+		return clone;
+	}
+
+	private void buildTables() {
+		hotSpots = new long[64];
+		sliceOffsets = new int[SLICES];
+		declareHotSpots();
+		updateSlices();
+	}
+
 	protected abstract void performBankSwitchOnMaskedAddress();
 
 
 	protected int bankAddressOffset = 0;
+	private transient int[] sliceOffsets;		// Offset to add to the masked address, per slice
+	private transient long[] hotSpots;			// One bit per masked address. Read only once built, so shared by clones
+
+	private static final int SLICE_SHIFT = 10;
+	private static final int SLICES = 4;
 
 	
 	public static final long serialVersionUID = 1L;
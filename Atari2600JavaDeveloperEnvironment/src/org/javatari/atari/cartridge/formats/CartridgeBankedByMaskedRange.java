@@ -2,6 +2,7 @@
 
 package org.javatari.atari.cartridge.formats;
 
+import java.nio.ByteBuffer;
 import java.util.Arrays;
 
 import org.javatari.atari.cartridge.CartridgeFormat;
@@ -54,6 +55,11 @@ public abstract class CartridgeBankedByMaskedRange extends CartridgeBanked {
 		}
 	}
 
+	@Override
+	protected void declareHotSpots() {
+		hotSpots(baseBankSwitchAddress, topBankSwitchAddress);
+	}
+
 	@Override
 	protected void performBankSwitchOnMaskedAddress() {
 		// Check and perform bank-switch as necessary
@@ -61,6 +67,25 @@ public abstract class CartridgeBankedByMaskedRange extends CartridgeBanked {
 			bankAddressOffset = romStartAddress + BANK_SIZE * (maskedAddress - baseBankSwitchAddress);
 	}
 
+	@Override
+	public void saveState(ByteBuffer out) {
+		super.saveState(out);
+		out.put((byte) (superChipMode ? 1 : 0));
+		if (extraRAM != null) out.put(extraRAM);
+	}
+
+	@Override
+	public void loadState(ByteBuffer in) {
+		super.loadState(in);
+		superChipMode = in.get() != 0;
+		if (extraRAM != null) in.get(extraRAM);
+	}
+
+	@Override
+	public int binaryStateSize() {
+		return super.binaryStateSize() + 1 + (extraRAM != null ? extraRAM.length : 0);
+	}
+
 	@Override
 	public CartridgeBankedByMaskedRange clone() {
 		CartridgeBankedByMaskedRange clone = (CartridgeBankedByMaskedRange)super.clone();
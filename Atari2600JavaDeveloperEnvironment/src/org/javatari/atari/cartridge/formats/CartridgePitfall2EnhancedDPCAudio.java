@@ -9,6 +9,7 @@ import org.javatari.atari.cartridge.ROM;
 
 /**
  * Implements an Enhanced version of Pitfall2 with TIA audio updates every DPC audio clock!
+ * Only the last update before each TIA audio sample or CPU audio write can be heard, so updates are sent only then
  */
 public class CartridgePitfall2EnhancedDPCAudio extends Cartridge10K_DPC {
 
@@ -17,14 +18,30 @@ public class CartridgePitfall2EnhancedDPCAudio extends Cartridge10K_DPC {
 	}
 
 	@Override
-	public void clockPulse() {
-		super.clockPulse();
-		if (!audioChanged) return;
+	public boolean needsAudioSynch() {
+		return true;
+	}
+
+	@Override
+	public void audioSynch() {
+		audioClockCatchUp();
+		if (!audioUpdatePending) return;
 		// Send a volume update do TIA Audio Channel 0
-		updateAudioOutput();
+		audioUpdatePending = false;
 		bus.tia.writeByte(0x19, audioOutput);	
 	}
+
+	@Override
+	protected void audioClockPulsedWithChange() {
+		// The value is taken now, as later register reads could change the fetchers before the update is sent
+		updateAudioOutput();
+		audioUpdatePending = true;
+	}
 	
+
+	private boolean audioUpdatePending = false;		// Always sent by the end of each frame, so not part of the state
+
+
 	public static final CartridgeFormat FORMAT = new CartridgeFormat("DPCa", "10K DPC (Pitfall 2 Enhanced Audio)") {
 		@Override
 		public Cartridge createCartridge(ROM rom) {
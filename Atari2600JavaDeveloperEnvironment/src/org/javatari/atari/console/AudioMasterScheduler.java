@@ -0,0 +1,40 @@
+// Copyright 2011-2012 Paulo Augusto Peccin. See licence.txt distributed with this file.
+
+package org.javatari.atari.console;
+
+import org.javatari.atari.tia.audio.AudioGenerator;
+import org.javatari.general.av.audio.AudioMonitor;
+import org.javatari.general.av.audio.AudioRateController;
+import org.javatari.general.av.audio.BufferedAudioMonitor;
+import org.javatari.general.board.Clock;
+import org.javatari.general.board.ClockDriven;
+import org.javatari.parameters.Parameters;
+
+/** Drives the console frames and slaves the running Clock rate to the audio monitor buffer fill level */
+public final class AudioMasterScheduler implements ClockDriven {
+
+	public AudioMasterScheduler(ClockDriven driven, AudioGenerator audio) {
+		this.driven = driven;
+		this.audio = audio;
+	}
+
+	@Override
+	public void clockPulse() {
+		// The TIA synchs the audio and video monitors after each frame in this mode
+		driven.clockPulse();
+		AudioMonitor monitor = audio.monitor();
+		if (!(monitor instanceof BufferedAudioMonitor) || !(Thread.currentThread() instanceof Clock)) return;
+		int target = ((BufferedAudioMonitor) monitor).bufferTargetSamples();
+		if (target <= 0) return;
+		// Buffer above target: run slower. Below: faster
+		((Clock) Thread.currentThread()).rate(rateControl.update(((BufferedAudioMonitor) monitor).bufferedSamples(), target));
+	}
+
+
+	private final ClockDriven driven;
+	private final AudioGenerator audio;
+	private final AudioRateController rateControl = new AudioRateController(RATE_GAIN, Parameters.CONSOLE_AUDIO_MASTER_MAX_RATE_DEVIATION);
+
+	private static final double RATE_GAIN = 0.02;
+
+}
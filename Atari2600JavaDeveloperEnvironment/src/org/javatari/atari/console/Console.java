@@ -2,9 +2,13 @@
 
 package org.javatari.atari.console;
 
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.Random;
 
 import org.javatari.atari.board.BUS;
 import org.javatari.atari.cartridge.Cartridge;
@@ -12,25 +16,31 @@ import org.javatari.atari.cartridge.CartridgeDatabase;
 import org.javatari.atari.cartridge.CartridgeFormatOption;
 import org.javatari.atari.cartridge.CartridgeInsertionListener;
 import org.javatari.atari.cartridge.CartridgeSocket;
+import org.javatari.atari.console.savestate.ConsoleSnapshot;
 import org.javatari.atari.console.savestate.ConsoleState;
+import org.javatari.atari.console.savestate.RewindBuffer;
 import org.javatari.atari.console.savestate.SaveStateMedia;
 import org.javatari.atari.console.savestate.SaveStateSocket;
 import org.javatari.atari.controls.ConsoleControls;
 import org.javatari.atari.controls.ConsoleControls.Control;
 import org.javatari.atari.controls.ConsoleControlsInput;
 import org.javatari.atari.controls.ConsoleControlsSocket;
+import org.javatari.atari.controls.InputLog;
 import org.javatari.atari.pia.PIA;
 import org.javatari.atari.pia.RAM;
 import org.javatari.atari.tia.TIA;
+import org.javatari.atari.tia.audio.AudioGenerator;
+import org.javatari.atari.tia.video.VideoGenerator;
 import org.javatari.general.av.audio.AudioSignal;
 import org.javatari.general.av.video.VideoSignal;
 import org.javatari.general.av.video.VideoStandard;
 import org.javatari.general.board.Clock;
+import org.javatari.general.board.ClockDriven;
 import org.javatari.general.m6502.M6502;
 import org.javatari.parameters.Parameters;
 
 
-public class Console {
+public class Console implements ClockDriven {
 
 	public Console() {
 		mainComponentsCreate();
@@ -68,6 +78,7 @@ public class Console {
 		tia.powerOn();
 		powerOn = true;
 		controlsSocket.controlsStatesRedefined();
+		if (rewindBuffer != null) rewindBuffer.clear();
 		go();
 		videoStandardAutoDetectionStart();
 		if (cartridge() == null) showOSD("NO CARTRIDGE INSERTED!", true);
@@ -110,6 +121,131 @@ public class Console {
 		showOSD((videoStandardAuto ? "AUTO: " : "") + videoStandard.toString(), false);
 	}
 
+	// Use another source of randomness for the power on and fry states, for reproducible runs. Console should be off
+	public void randomizer(Random random) {
+		bus.randomizer(random);
+		ram.randomizer(random);
+		pia.randomizer(random);
+	}
+
+	// One frame. In deterministic mode machine inputs only change here, before the frame starts
+	@Override
+	public void clockPulse() {
+		if (inputLogRecording != null && inputLogRecording.startState() == null) inputLogRecording.startState(binaryState());
+		if (inputLogReplaying != null) inputLogReplayFrame();
+		if (deterministic) controlsSocket.commitQueuedChanges();
+		if (runAheadFrames > 0) runAheadFrame();
+		else tia.clockPulse();
+		inputLatencyMeasure();
+		if (videoStandardDetectionFramesLeft > 0) videoStandardDetectionFrame();
+		if (rewindEnabled) rewindCapture();
+		if (inputLogRecording != null)
+			inputLogRecording.addFrame(controlsSocket.machineInputs(), controlsSocket.paddle0Position(), controlsSocket.paddle1Position(), stateHash());
+		else if (inputLogReplaying != null) {
+			if (inputLogDivergence < 0 && !inputLogReplaying.verify(stateHash())) inputLogDivergence = inputLogReplaying.frames() - inputLogFramesLeft;
+			if (--inputLogFramesLeft == 0) inputLogReplaying = null;
+		}
+	}
+
+	// Seeded randomness, machine inputs applied at frame boundaries and video standard detected in frame time, so runs can be repeated
+	public void deterministic(long seed) {
+		deterministic = true;
+		videoStandardDetectionInFrames = true;
+		randomizer(new Random(seed));
+		controlsSocket.queueChanges(true);
+	}
+
+	// Powers on seeded and records the starting state and the machine inputs of each frame
+	public void inputLogRecord(InputLog log) {
+		pause();
+		inputLogReplaying = null;
+		deterministic(log.seed());
+		inputLogRecording = log;
+		powerOn();
+	}
+
+	// Powers on seeded, restores the starting state of the log and replays its machine inputs, verifying each frame
+	public void inputLogReplay(InputLog log) {
+		pause();
+		inputLogRecording = null;
+		deterministic(log.seed());
+		if (cartridge() != null && !log.romHash().equals(cartridge().rom().info.hash))
+			System.out.println("Input Log recorded with another Cartridge: " + log.romHash());
+		log.rewind();
+		inputLogFramesLeft = log.frames();
+		inputLogDivergence = -1;
+		inputLogReplaying = inputLogFramesLeft > 0 ? log : null;
+		powerOn();
+	}
+
+	public InputLog inputLogStop() {
+		InputLog log = inputLogRecording != null ? inputLogRecording : inputLogReplaying;
+		inputLogRecording = null;
+		inputLogReplaying = null;
+		return log;
+	}
+
+	public boolean inputLogReplaying() {
+		return inputLogReplaying != null;
+	}
+
+	// First replayed frame not matching the recorded state, or -1 if none so far
+	public int inputLogDivergence() {
+		return inputLogDivergence;
+	}
+
+	// Frames emulated ahead of the real one with the current inputs, showing the last. Hides that much of the game own input lag. 0 = off
+	public void runAhead(int frames) {
+		runAheadFrames = Math.max(0, frames);
+		runAheadNanos = runAheadNanosMax = runAheadFramesDone = 0;
+		inputLatencyNanos = inputLatencySamples = 0;
+	}
+
+	public int runAhead() {
+		return runAheadFrames;
+	}
+
+	// Cost of each frame with the frames ahead, and time from an input received to the end of the first frame run with it
+	public String runAheadStats() {
+		double framePeriod = 1000 / videoStandard.fps;
+		double cost = runAheadFramesDone == 0 ? 0 : runAheadNanos / 1000000d / runAheadFramesDone;
+		double latency = inputLatencySamples == 0 ? 0 : inputLatencyNanos / 1000000d / inputLatencySamples;
+		return String.format(Locale.ENGLISH,
+			"Run-ahead %d frames: %.2fms per frame (max %.2fms), %.1fx real time, input to frame %.2fms, %.1fms of game lag hidden",
+			runAheadFrames, cost, runAheadNanosMax / 1000000d, cost == 0 ? 0 : framePeriod / cost, latency, runAheadFrames * framePeriod);
+	}
+
+	public void rewindEnabled(boolean enabled) {
+		rewindEnabled = enabled;
+		if (!enabled) rewindBuffer = null;
+	}
+
+	public RewindBuffer rewindBuffer() {
+		return rewindBuffer;
+	}
+
+	// Goes back (positive) or forward (negative) in the rewind history and stays paused there. Running again drops the newer frames
+	public int rewindScrub(int frames) {
+		if (rewindBuffer == null || rewindBuffer.frames() == 0) return -1;
+		pause();
+		int frame = Math.max(0, Math.min(rewindBuffer.frames() - 1, rewindBuffer.position() - frames));
+		rewindState.length(rewindBuffer.restore(frame, rewindState.data()));
+		loadState(rewindState);
+		showOSD(String.format("REWIND: -%.1fs", (rewindBuffer.frames() - 1 - frame) / videoStandard.fps), true);
+		return frame;
+	}
+
+	// Quick hash of the RAM and CPU registers
+	public int stateHash() {
+		ram.copyBytes(stateHashBytes, 0);
+		int hash = 0x811c9dc5;
+		for (byte b : stateHashBytes)
+			hash = (hash ^ b) * 0x01000193;
+		hash = (hash ^ cpu.PC) * 0x01000193;
+		hash = (hash ^ ((cpu.A << 24) | ((cpu.X & 0xff) << 16) | ((cpu.Y & 0xff) << 8) | (cpu.SP & 0xff))) * 0x01000193;
+		return hash;
+	}
+
 	public void go() {
 		mainClock.go();
 	}
@@ -118,6 +254,53 @@ public class Console {
 		mainClock.pause();
 	}
 	
+	// Compact binary snapshot of the main components and the Cartridge bank and RAM state, without the ROM. Console should be paused
+	public void saveState(ByteBuffer out) {
+		out.putInt(BINARY_STATE_MAGIC);
+		out.put(BINARY_STATE_VERSION);
+		out.put((byte) videoStandard.ordinal());
+		bus.saveState(out);
+		tia.saveState(out);
+		pia.saveState(out);
+		ram.saveState(out);
+		cpu.saveState(out);
+		if (cartridge() != null) cartridge().saveState(out);
+	}
+
+	public void loadState(ByteBuffer in) {
+		if (in.getInt() != BINARY_STATE_MAGIC || in.get() != BINARY_STATE_VERSION)
+			throw new IllegalStateException("Invalid binary state version");
+		VideoStandard standard = VIDEO_STANDARDS[in.get()];
+		if (standard != videoStandard) videoStandard(standard);
+		bus.loadState(in);
+		tia.loadState(in);
+		pia.loadState(in);
+		ram.loadState(in);
+		cpu.loadState(in);
+		if (cartridge() != null) cartridge().loadState(in);
+	}
+
+	// Buffer size needed for saveState(ByteBuffer) with the current Cartridge
+	public int binaryStateMaxSize() {
+		return BINARY_STATE_MAX_SIZE + (cartridge() != null ? cartridge().binaryStateSize() : 0);
+	}
+
+	// Snapshot big enough for the current Cartridge, to be reused for any number of captures
+	public ConsoleSnapshot newSnapshot() {
+		return new ConsoleSnapshot(binaryStateMaxSize());
+	}
+
+	// Same as saveState(ByteBuffer), without allocations
+	public void saveState(ConsoleSnapshot snapshot) {
+		if (snapshot.capacity() < binaryStateMaxSize()) throw new IllegalStateException("Snapshot too small for the Console state");
+		saveState(snapshot.captureBuffer());
+		snapshot.captured();
+	}
+
+	public void loadState(ConsoleSnapshot snapshot) {
+		loadState(snapshot.restoreBuffer());
+	}
+
 	// For debug purposes
 	public Clock mainClock() {
 		return mainClock;
@@ -130,6 +313,7 @@ public class Console {
 	protected void cartridge(Cartridge cartridge) {
 		controlsSocket.removeForwardedInput(cartridge());
 		bus.cartridge(cartridge);
+		if (rewindBuffer != null) rewindBuffer.clear();
 		cartridgeSocket.cartridgeInserted(cartridge);
 		if (cartridge != null) {
 			controlsSocket.addForwardedInput(cartridge);
@@ -152,8 +336,13 @@ public class Console {
 		}
 		// Otherwise use the VideoStandard detected by the monitor
 		if (tia.videoOutput().monitor() == null) return;
-		videoStandardAutoDetectionInProgress = true;
 		tia.videoOutput().monitor().videoStandardDetectionStart();
+		if (videoStandardDetectionInFrames) {
+			// Check after each frame instead of in wall time, with no extra Thread
+			videoStandardDetectionFramesLeft = VIDEO_STANDARD_DETECTION_FRAMES;
+			return;
+		}
+		videoStandardAutoDetectionInProgress = true;
 		new Thread("Console VideoStd Detection") { public void run() {
 			VideoStandard std;
 			int tries = 0;
@@ -167,6 +356,77 @@ public class Console {
 		}}.start();
 	}
 
+	private byte[] binaryState() {
+		ByteBuffer buffer = ByteBuffer.allocate(binaryStateMaxSize());
+		saveState(buffer);
+		return Arrays.copyOf(buffer.array(), buffer.position());
+	}
+
+	// Runs the real frame unseen, then the frames ahead with the same inputs showing only the last, and goes back to the real frame
+	private void runAheadFrame() {
+		long start = System.nanoTime();
+		if (runAheadState == null || runAheadState.capacity() < binaryStateMaxSize()) runAheadState = newSnapshot();
+		VideoGenerator video = tia.videoOutput();
+		AudioGenerator audio = tia.audioOutput();
+		video.hidden(true);
+		tia.clockPulse();
+		saveState(runAheadState);
+		audio.muted(true);
+		for (int i = runAheadFrames; i > 0; i--) {
+			if (i == 1) video.hidden(false);
+			tia.clockPulse();
+		}
+		audio.muted(false);
+		loadState(runAheadState);
+		long elapsed = System.nanoTime() - start;
+		runAheadNanos += elapsed;
+		if (elapsed > runAheadNanosMax) runAheadNanosMax = elapsed;
+		runAheadFramesDone++;
+	}
+
+	private void inputLatencyMeasure() {
+		long change = controlsSocket.machineInputsChangeTime();
+		if (change == inputLatencyLastChange) return;
+		inputLatencyLastChange = change;
+		inputLatencyNanos += System.nanoTime() - change;
+		inputLatencySamples++;
+	}
+
+	private void rewindCapture() {
+		// Recreate if the Cartridge state grew, as with 3E RAM banks
+		int size = binaryStateMaxSize();
+		if (rewindBuffer == null || rewindBuffer.maxStateSize() < size) {
+			rewindBuffer = new RewindBuffer(REWIND_MEMORY, REWIND_MAX_FRAMES, REWIND_KEYFRAME_INTERVAL, size);
+			rewindState = newSnapshot();
+		}
+		saveState(rewindState);
+		rewindBuffer.capture(rewindState.data(), rewindState.length());
+	}
+
+	private void videoStandardDetectionFrame() {
+		VideoStandard std = tia.videoOutput().monitor().videoStandardDetected();
+		if (std != null) {
+			videoStandardDetectionFramesLeft = 0;
+			videoStandard(std);
+		} else if (--videoStandardDetectionFramesLeft == 0)
+			showOSD("AUTO: FAILED", false);
+	}
+
+	private void inputLogReplayFrame() {
+		// Start from the same state the recording did
+		if (inputLogFramesLeft == inputLogReplaying.frames() && inputLogReplaying.startState() != null)
+			loadState(ByteBuffer.wrap(inputLogReplaying.startState()));
+		if (!inputLogReplaying.nextFrame()) return;
+		int changed = inputLogReplaying.inputs() ^ controlsSocket.machineInputs();
+		for (int i = 0; changed != 0; i++, changed >>>= 1)
+			if ((changed & 1) != 0)
+				controlsSocket.controlStateChanged(ConsoleControlsSocket.MACHINE_INPUTS[i], (inputLogReplaying.inputs() & (1 << i)) != 0);
+		if (inputLogReplaying.paddle0() != controlsSocket.paddle0Position())
+			controlsSocket.controlStateChanged(Control.PADDLE0_POSITION, inputLogReplaying.paddle0());
+		if (inputLogReplaying.paddle1() != controlsSocket.paddle1Position())
+			controlsSocket.controlStateChanged(Control.PADDLE1_POSITION, inputLogReplaying.paddle1());
+	}
+
 	protected void videoStandardForced(VideoStandard forcedVideoStandard) {
 		videoStandardAuto = false;
 		videoStandard(forcedVideoStandard);
@@ -181,7 +441,7 @@ public class Console {
 	}
 
 	protected void mainClockCreate() {
-		mainClock = new Clock("Console(TIA)", tia, 0);
+		mainClock = new Clock("Console(TIA)", AUDIO_MASTER_CLOCK ? new AudioMasterScheduler(this, tia.audioOutput()) : this, 0);
 	}
 
 	protected void mainClockAdjustToNormal() {
@@ -277,7 +537,29 @@ public class Console {
 	protected VideoStandard videoStandard;
 
 	protected boolean videoStandardAuto = true;
+	protected boolean videoStandardDetectionInFrames = false;
 	private boolean videoStandardAutoDetectionInProgress = false;
+	private int videoStandardDetectionFramesLeft = 0;
+
+	protected boolean deterministic = false;
+	private InputLog inputLogRecording;
+	private InputLog inputLogReplaying;
+	private int inputLogFramesLeft = 0;
+	private int inputLogDivergence = -1;
+	private final byte[] stateHashBytes = new byte[128];
+
+	private int runAheadFrames = RUN_AHEAD_FRAMES;
+	private ConsoleSnapshot runAheadState;
+	private long runAheadNanos = 0;
+	private long runAheadNanosMax = 0;
+	private long runAheadFramesDone = 0;
+	private long inputLatencyNanos = 0;
+	private long inputLatencySamples = 0;
+	private long inputLatencyLastChange = 0;
+
+	protected boolean rewindEnabled = REWIND_MEMORY > 0;
+	private RewindBuffer rewindBuffer;
+	private ConsoleSnapshot rewindState;
 	
 	protected ConsoleControlsSocket controlsSocket;
 	protected CartridgeSocketAdapter cartridgeSocket;
@@ -286,6 +568,19 @@ public class Console {
 	protected Clock mainClock;
 	
 	public static final int FAST_SPEED_FACTOR = Parameters.CONSOLE_FAST_SPEED_FACTOR;
+	public static final boolean AUDIO_MASTER_CLOCK = Parameters.CONSOLE_AUDIO_MASTER_CLOCK;
+
+	private static final int RUN_AHEAD_FRAMES = Parameters.CONSOLE_RUN_AHEAD_FRAMES;
+	private static final int REWIND_MEMORY = Parameters.CONSOLE_REWIND_MEMORY * 1024;
+	private static final int REWIND_MAX_FRAMES = Parameters.CONSOLE_REWIND_MAX_FRAMES;
+	private static final int REWIND_KEYFRAME_INTERVAL = Parameters.CONSOLE_REWIND_KEYFRAME_INTERVAL;
+
+	private static final int VIDEO_STANDARD_DETECTION_FRAMES = 90;		// About the same 1.5 seconds of the wall time detection
+
+	public static final int BINARY_STATE_MAX_SIZE = 2048;		// Enough even for the worst case line pixels and delayed changes
+	private static final int BINARY_STATE_MAGIC = 0x4a415453;	// "JATS"
+	private static final byte BINARY_STATE_VERSION = 5;
+	private static final VideoStandard[] VIDEO_STANDARDS = VideoStandard.values();		// values() clones the array each call
 
 	
 	protected class ConsoleControlsInputAdapter implements ConsoleControlsInput {
@@ -0,0 +1,81 @@
+// Copyright 2011-2012 Paulo Augusto Peccin. See licence.txt distributed with this file.
+
+package org.javatari.atari.console.savestate;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+
+/**
+ * Preallocated Console binary state, captured into and restored from repeatedly with array copies only.
+ * ROM contents are never copied, only the Cartridge bank and RAM state
+ */
+public final class ConsoleSnapshot {
+
+	public ConsoleSnapshot(int capacity) {
+		data = new byte[capacity];
+		buffer = ByteBuffer.wrap(data);
+	}
+
+	public int capacity() {
+		return data.length;
+	}
+
+	// Valid bytes. 0 = nothing captured yet
+	public int length() {
+		return length;
+	}
+
+	// Backing bytes, valid up to length()
+	public byte[] data() {
+		return data;
+	}
+
+	// Buffer positioned to capture a new state, which should be followed by captured()
+	public ByteBuffer captureBuffer() {
+		buffer.clear();
+		return buffer;
+	}
+
+	public void captured() {
+		length = buffer.position();
+	}
+
+	// Buffer positioned at the start of the captured state
+	public ByteBuffer restoreBuffer() {
+		if (length == 0) throw new IllegalStateException("Snapshot is empty");
+		buffer.clear();
+		buffer.limit(length);
+		return buffer;
+	}
+
+	// For states rebuilt directly into data(), as from the Rewind Buffer
+	public void length(int length) {
+		if (length > data.length) throw new IllegalStateException("State bigger than the Snapshot capacity");
+		this.length = length;
+	}
+
+	// Forks another snapshot without touching any Console
+	public void copyFrom(ConsoleSnapshot other) {
+		if (other.length > data.length) throw new IllegalStateException("State bigger than the Snapshot capacity");
+		System.arraycopy(other.data, 0, data, 0, other.length);
+		length = other.length;
+	}
+
+	public boolean sameState(ConsoleSnapshot other) {
+		if (length != other.length) return false;
+		for (int i = 0; i < length; i++)
+			if (data[i] != other.data[i]) return false;
+		return true;
+	}
+
+	public byte[] toByteArray() {
+		return Arrays.copyOf(data, length);
+	}
+
+
+	private final byte[] data;
+	private final ByteBuffer buffer;
+	private int length = 0;
+
+}
@@ -0,0 +1,196 @@
+// Copyright 2011-2012 Paulo Augusto Peccin. See licence.txt distributed with this file.
+
+package org.javatari.atari.console.savestate;
+
+/**
+ * Fixed memory history of Console binary states, one per frame.
+ * Keyframes are stored whole every few frames, other frames as the XOR against the previous frame with runs of zeros skipped.
+ * When memory or frame slots run out the oldest frames are dropped, always keeping a keyframe as the oldest
+ */
+public final class RewindBuffer {
+
+	public RewindBuffer(int memorySize, int maxFrames, int keyframeInterval, int maxStateSize) {
+		data = new byte[memorySize];
+		entryOffset = new int[maxFrames];
+		entryLength = new int[maxFrames];
+		entryStateLength = new int[maxFrames];
+		entryKey = new boolean[maxFrames];
+		this.keyframeInterval = keyframeInterval;
+		this.maxStateSize = maxStateSize;
+		previous = new byte[maxStateSize];
+		encoded = new byte[maxStateSize * 3 / 2 + 16];		// Worst case delta size, alternating single byte runs
+	}
+
+	public int maxStateSize() {
+		return maxStateSize;
+	}
+
+	// Number of frames kept
+	public int frames() {
+		return count;
+	}
+
+	// Frame restored last, or the newest one. Frames are numbered from 0, the oldest
+	public int position() {
+		return position;
+	}
+
+	public int memoryUsed() {
+		if (count == 0) return 0;
+		int first = entryOffset[head];
+		return writePosition > first ? writePosition - first : data.length - first + writePosition;
+	}
+
+	public void clear() {
+		head = count = writePosition = framesSinceKey = 0;
+		position = -1;
+	}
+
+	// Adds the state after the current position, dropping frames newer than that
+	public void capture(byte[] state, int length) {
+		if (length > maxStateSize) throw new IllegalStateException("State bigger than the Rewind Buffer maximum");
+		if (position < count - 1) truncate(position + 1);
+
+		boolean key = count == 0 || framesSinceKey >= keyframeInterval || entryStateLength[slot(count - 1)] != length;
+		int size = key ? length : encodeDelta(state, length);
+		if (!key && size >= length) {
+			key = true;
+			size = length;
+		}
+		if (size > data.length) {
+			clear();
+			return;
+		}
+
+		reserve(size);
+		if (count == entryOffset.length) dropOldest();
+		if (count == 0 && !key) {
+			// The frames the delta was based on were dropped
+			key = true;
+			size = length;
+			reserve(size);
+		}
+		System.arraycopy(key ? state : encoded, 0, data, writePosition, size);
+		int s = slot(count++);
+		entryOffset[s] = writePosition;
+		entryLength[s] = size;
+		entryStateLength[s] = length;
+		entryKey[s] = key;
+		writePosition += size;
+		framesSinceKey = key ? 1 : framesSinceKey + 1;
+		position = count - 1;
+		System.arraycopy(state, 0, previous, 0, length);
+	}
+
+	// Rebuilds the state of a frame into dest, returning its length. Next capture continues after that frame
+	public int restore(int frame, byte[] dest) {
+		if (frame < 0 || frame >= count) throw new IllegalStateException("Frame not in the Rewind Buffer: " + frame);
+		int key = frame;
+		while (!entryKey[slot(key)]) key--;
+		int s = slot(key);
+		int length = entryStateLength[s];
+		System.arraycopy(data, entryOffset[s], dest, 0, length);
+		for (int f = key + 1; f <= frame; f++)
+			decodeDelta(slot(f), dest);
+		System.arraycopy(dest, 0, previous, 0, length);
+		position = frame;
+		framesSinceKey = frame - key + 1;
+		return length;
+	}
+
+	// XOR against the previous state as pairs of zero run and literal run lengths, each followed by the literal bytes
+	private int encodeDelta(byte[] state, int length) {
+		int out = 0;
+		int i = 0;
+		while (i < length) {
+			int zeros = i;
+			while (i < length && state[i] == previous[i]) i++;
+			zeros = i - zeros;
+			int literal = i;
+			while (i < length && state[i] != previous[i] && i - literal < 127) i++;
+			literal = i - literal;
+			out = putVarint(zeros, out);
+			encoded[out++] = (byte) literal;
+			for (int j = i - literal; j < i; j++)
+				encoded[out++] = (byte) (state[j] ^ previous[j]);
+		}
+		return out;
+	}
+
+	private void decodeDelta(int s, byte[] dest) {
+		int in = entryOffset[s];
+		int end = in + entryLength[s];
+		int pos = 0;
+		while (in < end) {
+			int zeros = 0;
+			int shift = 0;
+			byte b;
+			do {
+				b = data[in++];
+				zeros |= (b & 0x7f) << shift;
+				shift += 7;
+			} while (b < 0);
+			pos += zeros;
+			int literal = data[in++];
+			for (int j = 0; j < literal; j++)
+				dest[pos++] ^= data[in++];
+		}
+	}
+
+	private int putVarint(int value, int out) {
+		while ((value & ~0x7f) != 0) {
+			encoded[out++] = (byte) ((value & 0x7f) | 0x80);
+			value >>>= 7;
+		}
+		encoded[out++] = (byte) value;
+		return out;
+	}
+
+	// Makes room for size contiguous bytes at the write position, wrapping around and dropping the frames in the way
+	private void reserve(int size) {
+		if (writePosition + size > data.length) {
+			while (count > 0 && entryOffset[head] >= writePosition) dropOldest();
+			writePosition = 0;
+		}
+		while (count > 0 && entryOffset[head] >= writePosition && entryOffset[head] < writePosition + size) dropOldest();
+	}
+
+	private void dropOldest() {
+		// Deltas need the keyframe before them, so drop up to the next keyframe
+		do {
+			head = slot(1);
+			count--;
+			position--;
+		} while (count > 0 && !entryKey[head]);
+		if (position < 0) position = count - 1;
+	}
+
+	private void truncate(int frames) {
+		count = frames;
+		int last = slot(count - 1);
+		writePosition = entryOffset[last] + entryLength[last];
+	}
+
+	private int slot(int frame) {
+		int s = head + frame;
+		return s >= entryOffset.length ? s - entryOffset.length : s;
+	}
+
+
+	private final byte[] data;
+	private final int[] entryOffset;
+	private final int[] entryLength;
+	private final int[] entryStateLength;
+	private final boolean[] entryKey;
+	private final int keyframeInterval;
+	private final int maxStateSize;
+	private final byte[] previous;
+	private final byte[] encoded;
+
+	private int head = 0;
+	private int count = 0;
+	private int writePosition = 0;
+	private int framesSinceKey = 0;
+	private int position = -1;
+
+}
@@ -13,14 +13,65 @@ public class ConsoleControlsSocket implements ConsoleControlsInput {
 
 	@Override
 	public void controlStateChanged(Control control, boolean state) {
-		for (ConsoleControlsInput input : forwardedInputs)
-			input.controlStateChanged(control, state);
+		int bit = MACHINE_INPUT_BITS[control.ordinal()];
+		if (bit != 0) machineInputsChangeTime = System.nanoTime();
+		if (bit != 0 && queueChanges) {
+			synchronized (queuedChanges) {
+				queuedChanges.add(new QueuedChange(control, state, 0));
+			}
+			return;
+		}
+		forward(control, state);
 	}
 
 	@Override
 	public void controlStateChanged(ConsoleControls.Control control, int position) {
-		for (ConsoleControlsInput input : forwardedInputs)
-			input.controlStateChanged(control, position);
+		if (queueChanges) {
+			synchronized (queuedChanges) {
+				queuedChanges.add(new QueuedChange(control, false, position));
+			}
+			return;
+		}
+		forward(control, position);
+	}
+
+	// Machine inputs (controllers and console switches) are held until commitQueuedChanges(), so they only change at frame boundaries
+	public void queueChanges(boolean queue) {
+		commitQueuedChanges();
+		queueChanges = queue;
+	}
+
+	public void commitQueuedChanges() {
+		if (!queueChanges) return;
+		QueuedChange[] changes;
+		synchronized (queuedChanges) {
+			if (queuedChanges.isEmpty()) return;
+			changes = queuedChanges.toArray(new QueuedChange[queuedChanges.size()]);
+			queuedChanges.clear();
+		}
+		for (QueuedChange change : changes)
+			if (change.control == Control.PADDLE0_POSITION || change.control == Control.PADDLE1_POSITION)
+				forward(change.control, change.position);
+			else
+				forward(change.control, change.state);
+	}
+
+	// Current state of the machine inputs, one bit per control in MACHINE_INPUTS order
+	public int machineInputs() {
+		return machineInputs;
+	}
+
+	// System.nanoTime() of the last machine input change received, to measure input latency
+	public long machineInputsChangeTime() {
+		return machineInputsChangeTime;
+	}
+
+	public int paddle0Position() {
+		return paddle0Position;
+	}
+
+	public int paddle1Position() {
+		return paddle1Position;
 	}
 
 	@Override
@@ -29,6 +80,20 @@ public class ConsoleControlsSocket implements ConsoleControlsInput {
 			input.controlsStateReport(report);
 	}
 
+	private void forward(Control control, boolean state) {
+		int bit = MACHINE_INPUT_BITS[control.ordinal()];
+		if (bit != 0) machineInputs = state ? machineInputs | bit : machineInputs & ~bit;
+		for (ConsoleControlsInput input : forwardedInputs)
+			input.controlStateChanged(control, state);
+	}
+
+	private void forward(Control control, int position) {
+		if (control == Control.PADDLE0_POSITION) paddle0Position = position;
+		else if (control == Control.PADDLE1_POSITION) paddle1Position = position;
+		for (ConsoleControlsInput input : forwardedInputs)
+			input.controlStateChanged(control, position);
+	}
+
 	public void addForwardedInput(ConsoleControlsInput input) {
 		forwardedInputs = new ArrayList<ConsoleControlsInput>(forwardedInputs);	// To prevent comodification
 		forwardedInputs.add(input);
@@ -54,4 +119,37 @@ public class ConsoleControlsSocket implements ConsoleControlsInput {
 	private List<ConsoleControlsInput> forwardedInputs = new ArrayList<ConsoleControlsInput>();
 	private List<ConsoleControlsRedefinitionListener> redefinitonListeners = new ArrayList<ConsoleControlsRedefinitionListener>();
 
+	private volatile boolean queueChanges = false;
+	private final List<QueuedChange> queuedChanges = new ArrayList<QueuedChange>();
+	private int machineInputs = 0;
+	private volatile long machineInputsChangeTime = 0;
+	private int paddle0Position = -1;
+	private int paddle1Position = -1;
+
+	// Controls that affect the emulated machine, as opposed to the emulator itself
+	public static final Control[] MACHINE_INPUTS = new Control[] {
+		Control.JOY0_UP, Control.JOY0_DOWN, Control.JOY0_LEFT, Control.JOY0_RIGHT, Control.JOY0_BUTTON,
+		Control.JOY1_UP, Control.JOY1_DOWN, Control.JOY1_LEFT, Control.JOY1_RIGHT, Control.JOY1_BUTTON,
+		Control.PADDLE0_BUTTON, Control.PADDLE1_BUTTON,
+		Control.BLACK_WHITE, Control.SELECT, Control.RESET, Control.DIFFICULTY0, Control.DIFFICULTY1
+	};
+
+	private static final int[] MACHINE_INPUT_BITS = new int[Control.values().length];
+	static {
+		for (int i = 0; i < MACHINE_INPUTS.length; i++)
+			MACHINE_INPUT_BITS[MACHINE_INPUTS[i].ordinal()] = 1 << i;
+	}
+
+
+	private static final class QueuedChange {
+		QueuedChange(Control control, boolean state, int position) {
+			this.control = control;
+			this.state = state;
+			this.position = position;
+		}
+		final Control control;
+		final boolean state;
+		final int position;
+	}
+
 }
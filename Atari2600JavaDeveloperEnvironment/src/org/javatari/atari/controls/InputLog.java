@@ -0,0 +1,182 @@
+// Copyright 2011-2012 Paulo Augusto Peccin. See licence.txt distributed with this file.
+
+package org.javatari.atari.controls;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+/**
+ * Machine inputs of each frame since a starting Console state, for deterministic replays.
+ * Only frames where inputs change are stored, as the count of unchanged frames before them plus a mask of what changed.
+ * A 16 bit hash of the Console state after each frame is kept to verify replays
+ */
+public final class InputLog {
+
+	public InputLog(long seed, String romHash) {
+		this.seed = seed;
+		this.romHash = romHash == null ? "" : romHash;
+	}
+
+	public long seed() {
+		return seed;
+	}
+
+	public String romHash() {
+		return romHash;
+	}
+
+	public int frames() {
+		return frames;
+	}
+
+	// Console binary state at the start of the first frame
+	public byte[] startState() {
+		return startState;
+	}
+
+	public void startState(byte[] state) {
+		startState = state;
+	}
+
+	// Recording. inputs as in ConsoleControlsSocket.machineInputs()
+	public void addFrame(int inputs, int paddle0, int paddle1, int hash) {
+		int changed = (inputs ^ recordInputs)
+			| (paddle0 != recordPaddle0 ? PADDLE0_CHANGED : 0) | (paddle1 != recordPaddle1 ? PADDLE1_CHANGED : 0);
+		if (changed == 0)
+			recordRun++;
+		else {
+			putVarint(recordRun);
+			putVarint(changed);
+			if ((changed & PADDLE0_CHANGED) != 0) putVarint(paddle0 + 1);	// -1 = disconnected
+			if ((changed & PADDLE1_CHANGED) != 0) putVarint(paddle1 + 1);
+			recordInputs = inputs; recordPaddle0 = paddle0; recordPaddle1 = paddle1;
+			recordRun = 0;
+		}
+		if (frames == hashes.length) hashes = Arrays.copyOf(hashes, hashes.length * 2);
+		hashes[frames++] = (short) (hash ^ (hash >>> 16));
+	}
+
+	// Replay. Call nextFrame() then read the inputs of that frame
+	public void rewind() {
+		readPosition = 0;
+		readFrame = 0;
+		inputs = 0; paddle0 = -1; paddle1 = -1;
+		readRun = readPosition < size ? getVarint() : Integer.MAX_VALUE;
+	}
+
+	public boolean nextFrame() {
+		if (readFrame >= frames) return false;
+		readFrame++;
+		if (readRun > 0) {
+			readRun--;
+			return true;
+		}
+		int changed = getVarint();
+		inputs ^= changed & ~(PADDLE0_CHANGED | PADDLE1_CHANGED);
+		if ((changed & PADDLE0_CHANGED) != 0) paddle0 = getVarint() - 1;
+		if ((changed & PADDLE1_CHANGED) != 0) paddle1 = getVarint() - 1;
+		readRun = readPosition < size ? getVarint() : Integer.MAX_VALUE;
+		return true;
+	}
+
+	public int inputs() {
+		return inputs;
+	}
+
+	public int paddle0() {
+		return paddle0;
+	}
+
+	public int paddle1() {
+		return paddle1;
+	}
+
+	// Whether the hash matches the one recorded for the last frame read
+	public boolean verify(int hash) {
+		return hashes[readFrame - 1] == (short) (hash ^ (hash >>> 16));
+	}
+
+	public void writeTo(OutputStream stream) throws IOException {
+		DataOutputStream out = new DataOutputStream(stream);
+		out.writeInt(MAGIC);
+		out.writeByte(VERSION);
+		out.writeLong(seed);
+		out.writeUTF(romHash);
+		out.writeInt(startState == null ? 0 : startState.length);
+		if (startState != null) out.write(startState);
+		out.writeInt(frames);
+		out.writeInt(size);
+		out.write(data, 0, size);
+		for (int i = 0; i < frames; i++)
+			out.writeShort(hashes[i]);
+		out.flush();
+	}
+
+	public static InputLog readFrom(InputStream stream) throws IOException {
+		DataInputStream in = new DataInputStream(stream);
+		if (in.readInt() != MAGIC || in.readByte() != VERSION)
+			throw new IOException("Invalid Input Log version");
+		InputLog log = new InputLog(in.readLong(), in.readUTF());
+		int stateLength = in.readInt();
+		if (stateLength > 0) {
+			log.startState = new byte[stateLength];
+			in.readFully(log.startState);
+		}
+		log.frames = in.readInt();
+		log.size = in.readInt();
+		log.data = new byte[Math.max(log.size, 16)];
+		in.readFully(log.data, 0, log.size);
+		log.hashes = new short[Math.max(log.frames, 16)];
+		for (int i = 0; i < log.frames; i++)
+			log.hashes[i] = in.readShort();
+		return log;
+	}
+
+	private void putVarint(int value) {
+		if (size + 5 > data.length) data = Arrays.copyOf(data, data.length * 2);
+		while ((value & ~0x7f) != 0) {
+			data[size++] = (byte) ((value & 0x7f) | 0x80);
+			value >>>= 7;
+		}
+		data[size++] = (byte) value;
+	}
+
+	private int getVarint() {
+		int value = 0;
+		int shift = 0;
+		byte b;
+		do {
+			b = data[readPosition++];
+			value |= (b & 0x7f) << shift;
+			shift += 7;
+		} while ((b & 0x80) != 0);
+		return value;
+	}
+
+
+	private final long seed;
+	private final String romHash;
+
+	private byte[] startState;
+	private byte[] data = new byte[256];
+	private int size = 0;
+	private short[] hashes = new short[1024];
+	private int frames = 0;
+
+	private int recordInputs = 0, recordPaddle0 = -1, recordPaddle1 = -1;
+	private int recordRun = 0;
+
+	private int readPosition, readFrame, readRun;
+	private int inputs, paddle0 = -1, paddle1 = -1;
+
+	private static final int PADDLE0_CHANGED = 1 << ConsoleControlsSocket.MACHINE_INPUTS.length;
+	private static final int PADDLE1_CHANGED = PADDLE0_CHANGED << 1;
+
+	private static final int MAGIC = 0x4a494e50;		// "JINP"
+	private static final byte VERSION = 1;
+
+}
@@ -7,6 +7,7 @@ import java.util.ArrayList;
 import java.util.List;
 
 import org.javatari.atari.cartridge.Cartridge;
+import org.javatari.atari.console.AudioMasterScheduler;
 import org.javatari.atari.console.Console;
 import org.javatari.atari.console.savestate.ConsoleState;
 import org.javatari.atari.controls.ConsoleControlsSocket;
@@ -48,7 +49,7 @@ public final class ServerConsole extends Console implements ClockDriven {
 	@Override
 	protected void mainClockCreate() {
 		// The server clock is always running
-		mainClock = new Clock("Server Console", this, VideoStandard.NTSC.fps);
+		mainClock = new Clock("Server Console", AUDIO_MASTER_CLOCK ? new AudioMasterScheduler(this, tia.audioOutput()) : this, VideoStandard.NTSC.fps);
 		mainClock.go();
 	}
 
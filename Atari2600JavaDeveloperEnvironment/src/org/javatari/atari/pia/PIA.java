@@ -4,7 +4,9 @@ package org.javatari.atari.pia;
 
 
 import java.io.Serializable;
+import java.nio.ByteBuffer;
 import java.util.Map;
+import java.util.Random;
 
 import org.javatari.atari.board.BUS;
 import org.javatari.atari.controls.ConsoleControls;
@@ -24,6 +26,11 @@ public final class PIA implements BUS16Bits, ClockDriven, ConsoleControlsInput {
 		this.bus = bus;
 	}
 
+	// Use another source of randomness, for reproducible runs
+	public void randomizer(Random random) {
+		INTIM = random.nextInt() & 0xff;
+	}
+
 	public void powerOn() {
 		// Nothing
 	}
@@ -183,6 +190,37 @@ public final class PIA implements BUS16Bits, ClockDriven, ConsoleControlsInput {
 		T1024T               = state.T1024T;
 	}
 
+	// Compact fixed layout binary state. Controls state (SWCHA) is not kept, as in PIAState
+	public void saveState(ByteBuffer out) {
+		out.putShort((short) timerCount);
+		out.putShort((short) currentTimerInterval);
+		out.putShort((short) lastSetTimerInterval);
+		out.put((byte) SWACNT);
+		out.put((byte) SWCHB);
+		out.put((byte) SWBCNT);
+		out.put((byte) INTIM);
+		out.put((byte) INSTAT);
+		out.put((byte) TIM1T);
+		out.put((byte) TIM8T);
+		out.put((byte) TIM64T);
+		out.put((byte) T1024T);
+	}
+
+	public void loadState(ByteBuffer in) {
+		timerCount           = in.getShort();
+		currentTimerInterval = in.getShort();
+		lastSetTimerInterval = in.getShort();
+		SWACNT               = in.get() & 0xff;
+		SWCHB                = in.get() & 0xff;
+		SWBCNT               = in.get() & 0xff;
+		INTIM                = in.get() & 0xff;
+		INSTAT               = in.get() & 0xff;
+		TIM1T                = in.get() & 0xff;
+		TIM8T                = in.get() & 0xff;
+		TIM64T               = in.get() & 0xff;
+		T1024T               = in.get() & 0xff;
+	}
+
 
 	private BUS bus;
 
@@ -8,13 +8,21 @@ import org.javatari.parameters.Parameters;
 import org.javatari.utils.Randomizer;
 
 import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.util.Random;
 
 
 public final class RAM implements BUS16Bits {
 
   public RAM() {
     // RAM come totally random at creation
-    Randomizer.instance.nextBytes(bytes);
+    random.nextBytes(bytes);
+  }
+
+  // Use another source of randomness, for reproducible runs. RAM come random again as if just created
+  public void randomizer(Random random) {
+    this.random = random;
+    random.nextBytes(bytes);
   }
 
   public void powerOn() {
@@ -38,6 +46,10 @@ public final class RAM implements BUS16Bits {
     bytes[(address & ADDRESS_MASK)] = b;
   }
 
+  public void copyBytes(byte[] dest, int destOffset) {
+    System.arraycopy(bytes, 0, dest, destOffset, bytes.length);
+  }
+
   public void dump() {
     System.out.println("RAM DUMP:");
     for (int i = 0; i < bytes.length; i++)
@@ -55,20 +67,29 @@ public final class RAM implements BUS16Bits {
     System.arraycopy(state.bytes, 0, bytes, 0, bytes.length);
   }
 
+  public void saveState(ByteBuffer out) {
+    out.put(bytes);
+  }
+
+  public void loadState(ByteBuffer in) {
+    in.get(bytes);
+  }
+
   public void powerFry() {
-    final float var = 1 - FRY_VARIANCE + 2 * Randomizer.instance.nextFloat() * FRY_VARIANCE;
+    final float var = 1 - FRY_VARIANCE + 2 * random.nextFloat() * FRY_VARIANCE;
     // Randomly put "0" in bits on the ram
     final int fryZeroBits = (int) (var * FRY_ZERO_BITS);
     for (int i = fryZeroBits; i > 0; i--)
-      bytes[Randomizer.instance.nextInt(128)] &= (byte) Randomizer.instance.nextInt(256);
+      bytes[random.nextInt(128)] &= (byte) random.nextInt(256);
     // Randomly put "1" in bits on the ram
     final int fryOneBits = (int) (var * FRY_ONE_BITS);
     for (int i = fryOneBits; i > 0; i--)
-      bytes[Randomizer.instance.nextInt(128)] |= (byte) (0x01 << Randomizer.instance.nextInt(8));
+      bytes[random.nextInt(128)] |= (byte) (0x01 << random.nextInt(8));
   }
 
   // State Variables --------------------------------------
   private final byte[] bytes = new byte[128];
+  private Random random = Randomizer.instance;
 
 
   // Constants -------------------------------------------
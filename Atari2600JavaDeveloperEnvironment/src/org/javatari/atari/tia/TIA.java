@@ -4,10 +4,12 @@ package org.javatari.atari.tia;
 
 
 import java.io.Serializable;
+import java.nio.ByteBuffer;
 import java.util.Arrays;
 import java.util.Map;
 
 import org.javatari.atari.board.BUS;
+import org.javatari.atari.cartridge.Cartridge;
 import org.javatari.atari.controls.ConsoleControls;
 import org.javatari.atari.controls.ConsoleControlsInput;
 import org.javatari.atari.tia.audio.AudioGenerator;
@@ -42,6 +44,17 @@ public final class TIA implements BUS16Bits, ClockDriven, ConsoleControlsInput {
 		return audioOutput;
 	}
 
+	// CPU cycles run so far, for components that catch up lazily. Only differences are meaningful
+	public long cpuCycles() {
+		// Pulses are sent at clocks 0, 3, 6 ... 225 of each line
+		return lineStartCPUCycles + (clock + 2) / 3;
+	}
+
+	// Cartridge that writes TIA audio registers by itself, synched before each audio sample and each CPU write to them. null = none
+	public void audioSynchCartridge(Cartridge cartridge) {
+		audioSynchCartridge = cartridge;
+	}
+
 	public void videoStandard(VideoStandard standard) {
 		videoOutput.standard(standard);
 		audioOutput.videoStandard(standard);
@@ -54,7 +67,8 @@ public final class TIA implements BUS16Bits, ClockDriven, ConsoleControlsInput {
 	}
 	
 	public void powerOn() {
-		Arrays.fill(linePixels, HBLANK_COLOR);
+		linePixelsNoCarry();
+		Arrays.fill(linePixels, linePixelsOffset, linePixelsOffset + LINE_WIDTH, HBLANK_COLOR);
 		Arrays.fill(debugPixels, 0);
 		audioOutput.channel0().setVolume(0);
 		audioOutput.channel1().setVolume(0);
@@ -76,6 +90,8 @@ public final class TIA implements BUS16Bits, ClockDriven, ConsoleControlsInput {
 		if (!powerOn || (debugPause && debugPausedNoMoreFrames())) return;
 		boolean videoOutputVSynched = false;	
 		do {
+			// Count the CPU cycles of the line just finished. None before the first line
+			lineStartCPUCycles += (clock + 2) / 3;
 			clock = 0;
 			// Send the first clock/3 pulse to the CPU and PIA, perceived by the TIA at clock 0
 			bus.clockPulse();
@@ -89,6 +105,7 @@ public final class TIA implements BUS16Bits, ClockDriven, ConsoleControlsInput {
 			}
 			// 67
 			// First Audio Sample. 2 samples per scan line ~ 31440 KHz
+			if (audioSynchCartridge != null) audioSynchCartridge.audioSynch();
 			audioOutput.clockPulse();
 			// Display period
 			int subClock3 = 2;	// To control the clock/3 cycles. First at clock 69
@@ -104,37 +121,78 @@ public final class TIA implements BUS16Bits, ClockDriven, ConsoleControlsInput {
 				objectsClockCounters();
 				if (!repeatLastLine && (clock >= 76 || !hMoveHitBlank))
 					setPixelValue();
-				// else linePixels[clock] |= 0x88800080;	// Add a pink dye to show pixels repeated
+				// else linePixels[linePixelsOffset + clock] |= 0x88800080;	// Add a pink dye to show pixels repeated
 			}
 			// End of scan line
 			// Second Audio Sample. 2 samples per scan line ~ 31440 KHz
+			if (audioSynchCartridge != null) audioSynchCartridge.audioSynch();
 			audioOutput.clockPulse();
 			// Handle Paddles capacitor charging
 			if (paddle0Position >= 0 && !paddleCapacitorsGrounded) paddlesChargeCapacitors();	// Only if paddles are connected (position >= 0)
 			// Send the finished line to the output
 			finishLine();
-			videoOutputVSynched = videoOutput.nextLine(linePixels, vSyncOn);
+			videoOutputVSynched = linePixels == ownLinePixels
+				? videoOutput.nextLine(linePixels, vSyncOn)
+				: videoOutput.lineRendered(vSyncOn);
+			linePixelsLendNext();
 		} while (!videoOutputVSynched && powerOn);
 		if (powerOn) {
 			audioOutput.sendSamplesFrameToMonitor();
 			// If needed, synch with audio and video output after each frame
-			if (SYNC_WITH_AUDIO_MONITOR) audioOutput.monitor().synchOutput();
-			if (SYNC_WITH_VIDEO_MONITOR) videoOutput.monitor().synchOutput();
+			if (SYNC_WITH_AUDIO_MONITOR && !audioOutput.muted()) audioOutput.monitor().synchOutput();
+			if (SYNC_WITH_VIDEO_MONITOR && !videoOutput.hidden()) videoOutput.monitor().synchOutput();
 		}
 	}
 
+	private void linePixelsLendNext() {
+		// Render the next line directly in the monitor buffer if possible
+		int[] buffer = videoOutput.lineBuffer();
+		int offset = videoOutput.lineBufferOffset();
+		if (buffer == null || offset < 0 || offset + LINE_WIDTH > buffer.length) {
+			buffer = ownLinePixels;
+			offset = 0;
+		}
+		previousLinePixels = linePixels;
+		previousLinePixelsOffset = linePixelsOffset;
+		// Repeated pixels are not computed again. They are carried from the last line only when the repeat ends, see repeatedPixelsCarry
+		repeatedPixelsFrom = repeatLastLine ? HBLANK_DURATION : -1;
+		if (buffer == linePixels && offset == linePixelsOffset) return;
+		// The HBLANK portion is never computed, and is the same in all lines unless debugging
+		if (buffer[offset] != linePixels[linePixelsOffset] || buffer[offset + HBLANK_DURATION - 1] != linePixels[linePixelsOffset + HBLANK_DURATION - 1])
+			System.arraycopy(linePixels, linePixelsOffset, buffer, offset, HBLANK_DURATION);
+		linePixels = buffer;
+		linePixelsOffset = offset;
+	}
+
+	private void repeatedPixelsCarry(int to) {
+		// Brings the pixels not computed since the repeat started from the last line
+		if (repeatedPixelsFrom < 0) return;
+		if (to > LINE_WIDTH) to = LINE_WIDTH;
+		if (to > repeatedPixelsFrom && (linePixels != previousLinePixels || linePixelsOffset != previousLinePixelsOffset))
+			System.arraycopy(previousLinePixels, previousLinePixelsOffset + repeatedPixelsFrom, linePixels, linePixelsOffset + repeatedPixelsFrom, to - repeatedPixelsFrom);
+		repeatedPixelsFrom = -1;
+	}
+
+	private void linePixelsNoCarry() {
+		// The current line is complete by itself
+		previousLinePixels = linePixels;
+		previousLinePixelsOffset = linePixelsOffset;
+		repeatedPixelsFrom = -1;
+	}
+
 	private void checkRepeatMode() {
 		// If one entire line since last observable change has just completed, enter repeatLastLine mode
 		if (clock == lastObservableChangeClock) {
 			repeatLastLine = true;
 			lastObservableChangeClock = -1;
+			repeatedPixelsFrom = clock < HBLANK_DURATION ? HBLANK_DURATION : clock;
 		}
 	}
 
 	private void setPixelValue() {
 		// No need to calculate all possibilities in vSync/vBlank. TODO No collisions will be detected
-		if (vSyncOn) { linePixels[clock] = vSyncColor; return; }
-		if (vBlankOn) { linePixels[clock] = vBlankColor; return; }
+		if (vSyncOn) { linePixels[linePixelsOffset + clock] = vSyncColor; return; }
+		if (vBlankOn) { linePixels[linePixelsOffset + clock] = vBlankColor; return; }
 		// Updates the current PlayFiled pixel to draw only each 4 pixels, or at the first calculated pixel after stopped using cached line
 		if ((clock & 0x03) == 0 || clock == lastObservableChangeClock)		// clock & 0x03 is the same as clock % 4
 			playfieldUpdateCurrentPixel();
@@ -203,7 +261,7 @@ public final class TIA implements BUS16Bits, ClockDriven, ConsoleControlsInput {
 		// If nothing more is showing, get the PlayField background value (low priority)
 		if (color > 0) color = playfieldBackground;
 		// Set the correct pixel color
-		linePixels[clock] = color;
+		linePixels[linePixelsOffset + clock] = color;
 		// Finish collision latches
 		if (debugNoCollisions) return;
 		if (P0 && FL) 
@@ -761,16 +819,17 @@ public final class TIA implements BUS16Bits, ClockDriven, ConsoleControlsInput {
 	}
 
 	private void finishLine() {
+		repeatedPixelsCarry(LINE_WIDTH);
 	 	// Fills the extended HBLANK portion of the current line if needed
 		if (hMoveHitBlank) {
-			linePixels[HBLANK_DURATION] =
-			linePixels[HBLANK_DURATION + 1] =
-			linePixels[HBLANK_DURATION + 2] =
-			linePixels[HBLANK_DURATION + 3] =
-			linePixels[HBLANK_DURATION + 4] =
-			linePixels[HBLANK_DURATION + 5] =
-			linePixels[HBLANK_DURATION + 6] =
-			linePixels[HBLANK_DURATION + 7] = hBlankColor;		// This is faster than Arrays.fill()
+			linePixels[linePixelsOffset + HBLANK_DURATION] =
+			linePixels[linePixelsOffset + HBLANK_DURATION + 1] =
+			linePixels[linePixelsOffset + HBLANK_DURATION + 2] =
+			linePixels[linePixelsOffset + HBLANK_DURATION + 3] =
+			linePixels[linePixelsOffset + HBLANK_DURATION + 4] =
+			linePixels[linePixelsOffset + HBLANK_DURATION + 5] =
+			linePixels[linePixelsOffset + HBLANK_DURATION + 6] =
+			linePixels[linePixelsOffset + HBLANK_DURATION + 7] = hBlankColor;		// This is faster than Arrays.fill()
 			hMoveHitBlank = false;
 		}
 		// Perform late HMOVE hit if needed
@@ -790,7 +849,10 @@ public final class TIA implements BUS16Bits, ClockDriven, ConsoleControlsInput {
 	
 	private void observableChange() {
 		lastObservableChangeClock = clock;
-		if (repeatLastLine) repeatLastLine = false;	
+		if (repeatLastLine) {
+			repeatLastLine = false;
+			repeatedPixelsCarry(clock);
+		}
 	}
 
 	private void observableChangeExtended() {
@@ -824,8 +886,8 @@ public final class TIA implements BUS16Bits, ClockDriven, ConsoleControlsInput {
 		hBlankColor = HBLANK_COLOR;
 		vBlankColor = VBLANK_COLOR;
 		playfieldBackground = palette[0];
-		Arrays.fill(linePixels, hBlankColor);
 		observableChange();
+		Arrays.fill(linePixels, linePixelsOffset, linePixelsOffset + LINE_WIDTH, hBlankColor);
 	}
 
 	private void debugInfo(String str) {
@@ -843,7 +905,7 @@ public final class TIA implements BUS16Bits, ClockDriven, ConsoleControlsInput {
 	}
 
 	private void processDebugPixelsInLine() {
-		Arrays.fill(linePixels, 0, HBLANK_DURATION, hBlankColor);
+		Arrays.fill(linePixels, linePixelsOffset, linePixelsOffset + HBLANK_DURATION, hBlankColor);
 		if (debugLevel >= 4 && videoOutput.monitor().currentLine() % 10 == 0)
 			for (int i = 0; i < LINE_WIDTH; i++) {
 				if (debugPixels[i] != 0) continue;
@@ -858,7 +920,7 @@ public final class TIA implements BUS16Bits, ClockDriven, ConsoleControlsInput {
 		if (debugLevel >= 3) 
 			for (int i = 0; i < LINE_WIDTH; i++)
 				if (debugPixels[i] != 0) {
-					linePixels[i] = debugPixels[i];
+					linePixels[linePixelsOffset + i] = debugPixels[i];
 					debugPixels[i] = 0;
 				}
 		observableChange();
@@ -936,6 +998,7 @@ public final class TIA implements BUS16Bits, ClockDriven, ConsoleControlsInput {
 		if (reg == 0x25) { /*VDELP0 = i;*/ observableChange(); player0VerticalDelay = (i & 0x01) != 0; return; }
 		if (reg == 0x26) { /*VDELP1 = i;*/ observableChange(); player1VerticalDelay = (i & 0x01) != 0; return; }
 		if (reg == 0x27) { /*VDELBL = i;*/ observableChange(); ballVerticalDelay = (i & 0x01) != 0; return; }
+		if (audioSynchCartridge != null && reg >= 0x15 && reg <= 0x1A) audioSynchCartridge.audioSynch();
 		if (reg == 0x15) { AUDC0  = i; audioOutput.channel0().setControl(i & 0x0f); return; }
 		if (reg == 0x16) { AUDC1  = i; audioOutput.channel1().setControl(i & 0x0f); return; }
 		if (reg == 0x17) { AUDF0  = i; audioOutput.channel0().setDivider((i & 0x1f) + 1); return; }		// Bits 0-4, Divider from 1 to 32 )
@@ -1013,7 +1076,7 @@ public final class TIA implements BUS16Bits, ClockDriven, ConsoleControlsInput {
 
 	public TIAState saveState() {
 		TIAState state = new TIAState();
-		state.linePixels					   =  linePixels.clone();
+		state.linePixels					   =  Arrays.copyOfRange(previousLinePixels, previousLinePixelsOffset, previousLinePixelsOffset + LINE_WIDTH);	// Lines start as the last one
 		state.lastObservableChangeClock		   =  lastObservableChangeClock;
 		state.observableChangeExtended		   =  observableChangeExtended;
 		state.repeatLastLine 				   =  repeatLastLine;
@@ -1107,7 +1170,10 @@ public final class TIA implements BUS16Bits, ClockDriven, ConsoleControlsInput {
 	}
 
 	public void loadState(TIAState state) {
-		linePixels						 =  state.linePixels;
+		System.arraycopy(state.linePixels, 0, ownLinePixels, 0, LINE_WIDTH);
+		linePixels						 =  ownLinePixels;
+		linePixelsOffset				 =  0;
+		linePixelsNoCarry();
 		lastObservableChangeClock		 =	state.lastObservableChangeClock;
 		observableChangeExtended		 =  state.observableChangeExtended;
 		repeatLastLine 					 =	state.repeatLastLine;
@@ -1171,7 +1237,7 @@ public final class TIA implements BUS16Bits, ClockDriven, ConsoleControlsInput {
 		playfieldDelayedChangeClock		 =  state.playfieldDelayedChangeClock;
 		playfieldDelayedChangePart		 =  state.playfieldDelayedChangePart;
 		playfieldDelayedChangePattern	 =  state.playfieldDelayedChangePattern;
-		playersDelayedSpriteChanges      =  state.playersDelayedSpriteChanges;      
+		playersDelayedSpriteChanges      =  Array2DCopy.copy(state.playersDelayedSpriteChanges);
 		playersDelayedSpriteChangesCount =  state.playersDelayedSpriteChangesCount;
 		hMoveHitBlank					 =  state.hMoveHitBlank;
 		hMoveHitClock					 =  state.hMoveHitClock;
@@ -1207,6 +1273,8 @@ public final class TIA implements BUS16Bits, ClockDriven, ConsoleControlsInput {
 	private final AudioMonoGenerator audioOutput;
 	
 	private int clock = 0;
+	private long lineStartCPUCycles = 0;
+	private Cartridge audioSynchCartridge;
 
 	private BUS bus;
 
@@ -1222,13 +1290,277 @@ public final class TIA implements BUS16Bits, ClockDriven, ConsoleControlsInput {
 	private int debugPauseMoreFrames = 0;
 	
 
+	// Compact fixed layout binary state. Must be kept in the same order as loadState(ByteBuffer)
+	public void saveState(ByteBuffer out) {
+		putLinePixels(out);
+		out.putShort((short) lastObservableChangeClock);
+		out.put(observableChangeExtended ? (byte) 1 : 0);
+		out.put(repeatLastLine ? (byte) 1 : 0);
+		out.put(vSyncOn ? (byte) 1 : 0);
+		out.put(vBlankOn ? (byte) 1 : 0);
+		out.put(vBlankDecodeActive ? (byte) 1 : 0);
+		out.put(vBlankNewState ? (byte) 1 : 0);
+		long pattern = 0;
+		for (int i = 0; i < playfieldPattern.length; i++) if (playfieldPattern[i]) pattern |= 1L << i;
+		out.putLong(pattern);
+		out.put(playfieldPatternInvalid ? (byte) 1 : 0);
+		out.put(playfieldCurrentPixel ? (byte) 1 : 0);
+		out.putInt(playfieldColor);
+		out.putInt(playfieldBackground);
+		out.put(playfieldReflected ? (byte) 1 : 0);
+		out.put(playfieldScoreMode ? (byte) 1 : 0);
+		out.put(playfieldPriority ? (byte) 1 : 0);
+		out.put((byte) player0ActiveSprite);
+		out.put((byte) player0DelayedSprite);
+		out.putInt(player0Color);
+		out.put(player0RecentReset ? (byte) 1 : 0);
+		out.putShort((short) player0Counter);
+		out.putShort((short) player0ScanCounter);
+		out.putShort((short) player0ScanSpeed);
+		out.put(player0VerticalDelay ? (byte) 1 : 0);
+		out.put(player0CloseCopy ? (byte) 1 : 0);
+		out.put(player0MediumCopy ? (byte) 1 : 0);
+		out.put(player0WideCopy ? (byte) 1 : 0);
+		out.put(player0Reflected ? (byte) 1 : 0);
+		out.put((byte) player1ActiveSprite);
+		out.put((byte) player1DelayedSprite);
+		out.putInt(player1Color);
+		out.put(player1RecentReset ? (byte) 1 : 0);
+		out.putShort((short) player1Counter);
+		out.putShort((short) player1ScanCounter);
+		out.putShort((short) player1ScanSpeed);
+		out.put(player1VerticalDelay ? (byte) 1 : 0);
+		out.put(player1CloseCopy ? (byte) 1 : 0);
+		out.put(player1MediumCopy ? (byte) 1 : 0);
+		out.put(player1WideCopy ? (byte) 1 : 0);
+		out.put(player1Reflected ? (byte) 1 : 0);
+		out.put(missile0Enabled ? (byte) 1 : 0);
+		out.putInt(missile0Color);
+		out.put(missile0RecentReset ? (byte) 1 : 0);
+		out.putShort((short) missile0Counter);
+		out.putShort((short) missile0ScanCounter);
+		out.putShort((short) missile0ScanSpeed);
+		out.put(missile0ResetToPlayer ? (byte) 1 : 0);
+		out.put(missile1Enabled ? (byte) 1 : 0);
+		out.putInt(missile1Color);
+		out.put(missile1RecentReset ? (byte) 1 : 0);
+		out.putShort((short) missile1Counter);
+		out.putShort((short) missile1ScanCounter);
+		out.putShort((short) missile1ScanSpeed);
+		out.put(missile1ResetToPlayer ? (byte) 1 : 0);
+		out.put(ballEnabled ? (byte) 1 : 0);
+		out.put(ballDelayedEnablement ? (byte) 1 : 0);
+		out.putInt(ballColor);
+		out.putShort((short) ballCounter);
+		out.putShort((short) ballScanCounter);
+		out.putShort((short) ballScanSpeed);
+		out.put(ballVerticalDelay ? (byte) 1 : 0);
+		putDelayedChanges(out);
+		out.put(hMoveHitBlank ? (byte) 1 : 0);
+		out.putShort((short) hMoveHitClock);
+		out.put(hMoveLateHit ? (byte) 1 : 0);
+		out.put(hMoveLateHitBlank ? (byte) 1 : 0);
+		out.put((byte) PF0);
+		out.put((byte) PF1);
+		out.put((byte) PF2);
+		out.put((byte) AUDC0);
+		out.put((byte) AUDC1);
+		out.put((byte) AUDF0);
+		out.put((byte) AUDF1);
+		out.put((byte) AUDV0);
+		out.put((byte) AUDV1);
+		out.put((byte) HMP0);
+		out.put((byte) HMP1);
+		out.put((byte) HMM0);
+		out.put((byte) HMM1);
+		out.put((byte) HMBL);
+		out.put((byte) CXM0P);
+		out.put((byte) CXM1P);
+		out.put((byte) CXP0FB);
+		out.put((byte) CXP1FB);
+		out.put((byte) CXM0FB);
+		out.put((byte) CXM1FB);
+		out.put((byte) CXBLPF);
+		out.put((byte) CXPPMM);
+		out.put(controlsButtonsLatched ? (byte) 1 : 0);
+		out.put(paddleCapacitorsGrounded ? (byte) 1 : 0);
+		out.putShort((short) paddle0CapacitorCharge);
+		out.putShort((short) paddle1CapacitorCharge);
+		out.put((byte) INPT0);
+		out.put((byte) INPT1);
+		out.put((byte) INPT2);
+		out.put((byte) INPT3);
+		audioOutput.saveState(out);
+		videoOutput.saveState(out);
+	}
+
+	public void loadState(ByteBuffer in) {
+		getLinePixels(in);
+		lastObservableChangeClock = in.getShort();
+		observableChangeExtended = in.get() != 0;
+		repeatLastLine = in.get() != 0;
+		vSyncOn = in.get() != 0;
+		vBlankOn = in.get() != 0;
+		vBlankDecodeActive = in.get() != 0;
+		vBlankNewState = in.get() != 0;
+		long pattern = in.getLong();
+		for (int i = 0; i < playfieldPattern.length; i++) playfieldPattern[i] = (pattern & (1L << i)) != 0;
+		playfieldPatternInvalid = in.get() != 0;
+		playfieldCurrentPixel = in.get() != 0;
+		playfieldColor = in.getInt();
+		playfieldBackground = in.getInt();
+		playfieldReflected = in.get() != 0;
+		playfieldScoreMode = in.get() != 0;
+		playfieldPriority = in.get() != 0;
+		player0ActiveSprite = in.get() & 0xff;
+		player0DelayedSprite = in.get() & 0xff;
+		player0Color = in.getInt();
+		player0RecentReset = in.get() != 0;
+		player0Counter = in.getShort();
+		player0ScanCounter = in.getShort();
+		player0ScanSpeed = in.getShort();
+		player0VerticalDelay = in.get() != 0;
+		player0CloseCopy = in.get() != 0;
+		player0MediumCopy = in.get() != 0;
+		player0WideCopy = in.get() != 0;
+		player0Reflected = in.get() != 0;
+		player1ActiveSprite = in.get() & 0xff;
+		player1DelayedSprite = in.get() & 0xff;
+		player1Color = in.getInt();
+		player1RecentReset = in.get() != 0;
+		player1Counter = in.getShort();
+		player1ScanCounter = in.getShort();
+		player1ScanSpeed = in.getShort();
+		player1VerticalDelay = in.get() != 0;
+		player1CloseCopy = in.get() != 0;
+		player1MediumCopy = in.get() != 0;
+		player1WideCopy = in.get() != 0;
+		player1Reflected = in.get() != 0;
+		missile0Enabled = in.get() != 0;
+		missile0Color = in.getInt();
+		missile0RecentReset = in.get() != 0;
+		missile0Counter = in.getShort();
+		missile0ScanCounter = in.getShort();
+		missile0ScanSpeed = in.getShort();
+		missile0ResetToPlayer = in.get() != 0;
+		missile1Enabled = in.get() != 0;
+		missile1Color = in.getInt();
+		missile1RecentReset = in.get() != 0;
+		missile1Counter = in.getShort();
+		missile1ScanCounter = in.getShort();
+		missile1ScanSpeed = in.getShort();
+		missile1ResetToPlayer = in.get() != 0;
+		ballEnabled = in.get() != 0;
+		ballDelayedEnablement = in.get() != 0;
+		ballColor = in.getInt();
+		ballCounter = in.getShort();
+		ballScanCounter = in.getShort();
+		ballScanSpeed = in.getShort();
+		ballVerticalDelay = in.get() != 0;
+		getDelayedChanges(in);
+		hMoveHitBlank = in.get() != 0;
+		hMoveHitClock = in.getShort();
+		hMoveLateHit = in.get() != 0;
+		hMoveLateHitBlank = in.get() != 0;
+		PF0 = in.get() & 0xff;
+		PF1 = in.get() & 0xff;
+		PF2 = in.get() & 0xff;
+		AUDC0 = in.get() & 0xff; audioOutput.channel0().setControl(AUDC0 & 0x0f);
+		AUDC1 = in.get() & 0xff; audioOutput.channel1().setControl(AUDC1 & 0x0f);
+		AUDF0 = in.get() & 0xff; audioOutput.channel0().setDivider((AUDF0 & 0x1f) + 1);
+		AUDF1 = in.get() & 0xff; audioOutput.channel1().setDivider((AUDF1 & 0x1f) + 1);
+		AUDV0 = in.get() & 0xff; audioOutput.channel0().setVolume(AUDV0 & 0x0f);
+		AUDV1 = in.get() & 0xff; audioOutput.channel1().setVolume(AUDV1 & 0x0f);
+		HMP0 = in.get() & 0xff;
+		HMP1 = in.get() & 0xff;
+		HMM0 = in.get() & 0xff;
+		HMM1 = in.get() & 0xff;
+		HMBL = in.get() & 0xff;
+		CXM0P = in.get() & 0xff;
+		CXM1P = in.get() & 0xff;
+		CXP0FB = in.get() & 0xff;
+		CXP1FB = in.get() & 0xff;
+		CXM0FB = in.get() & 0xff;
+		CXM1FB = in.get() & 0xff;
+		CXBLPF = in.get() & 0xff;
+		CXPPMM = in.get() & 0xff;
+		controlsButtonsLatched = in.get() != 0;
+		paddleCapacitorsGrounded = in.get() != 0;
+		paddle0CapacitorCharge = in.getShort();
+		paddle1CapacitorCharge = in.getShort();
+		INPT0 = in.get() & 0xff;
+		INPT1 = in.get() & 0xff;
+		INPT2 = in.get() & 0xff;
+		INPT3 = in.get() & 0xff;
+		audioOutput.loadState(in);
+		videoOutput.loadState(in);
+		if (debug) debugSetColors();						// IF debug is on, ensure debug colors are used
+	}
+
+	private void putLinePixels(ByteBuffer out) {
+		// Run-length encoded, as lines usually have just a few color runs
+		// Lines start as the last one
+		int[] pixels = previousLinePixels;
+		int i = previousLinePixelsOffset, end = previousLinePixelsOffset + LINE_WIDTH;
+		while (i < end) {
+			int color = pixels[i], run = 1;
+			while (i + run < end && pixels[i + run] == color) run++;
+			out.put((byte) (run - 1));
+			out.putInt(color);
+			i += run;
+		}
+	}
+
+	private void getLinePixels(ByteBuffer in) {
+		linePixels = ownLinePixels;
+		linePixelsOffset = 0;
+		int i = 0;
+		while (i < LINE_WIDTH) {
+			int run = (in.get() & 0xff) + 1;
+			int color = in.getInt();
+			Arrays.fill(linePixels, i, i + run, color);
+			i += run;
+		}
+		linePixelsNoCarry();
+	}
+
+	private void putDelayedChanges(ByteBuffer out) {
+		out.putShort((short) playfieldDelayedChangeClock);
+		out.put((byte) playfieldDelayedChangePart);
+		out.putShort((short) playfieldDelayedChangePattern);
+		out.put((byte) playersDelayedSpriteChangesCount);
+		for (int i = 0; i < playersDelayedSpriteChangesCount; i++) {
+			out.putShort((short) playersDelayedSpriteChanges[i][0]);
+			out.put((byte) playersDelayedSpriteChanges[i][1]);
+			out.put((byte) playersDelayedSpriteChanges[i][2]);
+		}
+	}
+
+	private void getDelayedChanges(ByteBuffer in) {
+		playfieldDelayedChangeClock = in.getShort();
+		playfieldDelayedChangePart = in.get();
+		playfieldDelayedChangePattern = in.getShort();
+		playersDelayedSpriteChangesCount = in.get();
+		for (int i = 0; i < playersDelayedSpriteChangesCount; i++) {
+			playersDelayedSpriteChanges[i][0] = in.getShort();
+			playersDelayedSpriteChanges[i][1] = in.get();
+			playersDelayedSpriteChanges[i][2] = in.get() & 0xff;
+		}
+	}
+
+
 	// State Variables ----------------------------------------------
 
 	private boolean debug = false;
 	private int debugLevel = 0;
 	private boolean debugNoCollisions = false;
 
-	private int[] linePixels = new int[LINE_WIDTH];
+	private final int[] ownLinePixels = new int[LINE_WIDTH];
+	private int[] linePixels = ownLinePixels;			// May be lent by the monitor
+	private int linePixelsOffset = 0;
+	private int[] previousLinePixels = ownLinePixels;
+	private int previousLinePixelsOffset = 0;
+	private int repeatedPixelsFrom = -1;			// First pixel repeated but not yet carried from the last line, or -1
 	private int lastObservableChangeClock = -1;
 	private boolean observableChangeExtended = false;
 	private boolean repeatLastLine;
@@ -1425,8 +1757,8 @@ public final class TIA implements BUS16Bits, ClockDriven, ConsoleControlsInput {
 	
 	private static final int PLAYERS_DELAYED_SPRITE_GHANGES_MAX_COUNT = 50;  // Supports a maximum of player GR changes before any is drawn
 	
-	private static final boolean SYNC_WITH_AUDIO_MONITOR = Parameters.TIA_SYNC_WITH_AUDIO_MONITOR;
-	private static final boolean SYNC_WITH_VIDEO_MONITOR = Parameters.TIA_SYNC_WITH_VIDEO_MONITOR;
+	private static final boolean SYNC_WITH_AUDIO_MONITOR = Parameters.TIA_SYNC_WITH_AUDIO_MONITOR || Parameters.CONSOLE_AUDIO_MASTER_CLOCK;
+	private static final boolean SYNC_WITH_VIDEO_MONITOR = Parameters.TIA_SYNC_WITH_VIDEO_MONITOR || Parameters.CONSOLE_AUDIO_MASTER_CLOCK;
 	
 	private static final double FORCED_CLOCK = Parameters.TIA_FORCED_CLOCK;	//  TIA Real Clock = NTSC clock = 3584160 or 3579545 Hz
 
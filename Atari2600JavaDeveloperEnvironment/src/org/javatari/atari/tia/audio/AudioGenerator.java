@@ -2,6 +2,8 @@
 
 package org.javatari.atari.tia.audio;
 
+import java.nio.ByteBuffer;
+
 import org.javatari.general.av.audio.AudioMonitor;
 import org.javatari.general.av.audio.AudioSignal;
 import org.javatari.general.av.video.VideoStandard;
@@ -16,9 +18,10 @@ public abstract class AudioGenerator implements AudioSignal, ClockDriven {
 		this.monitor = monitor;
 	}
 
+	// Samples are only counted here, and generated in blocks when a channel changes or the frame ends
 	@Override
 	public void clockPulse() {
-		if (generatedSamples < samplesPerFrame) generateNextSamples(1);
+		if (generatedSamples + pendingSamples < samplesPerFrame) pendingSamples++;
 	}
 
 	public ChannelStream channel0() {
@@ -30,12 +33,38 @@ public abstract class AudioGenerator implements AudioSignal, ClockDriven {
 	}
 
 	public void sendSamplesFrameToMonitor() {
+		generatePendingSamples();
 		int missingSamples = samplesPerFrame - generatedSamples;
 		if (missingSamples > 0) generateNextSamples(missingSamples);
-		if (monitor != null) monitor.nextSamples(samples, generatedSamples);
+		if (monitor != null && !muted) monitor.nextSamples(samples, generatedSamples);
 		generatedSamples = 0;
 	}
 
+	// Frames are still generated but not sent to the monitor
+	public void muted(boolean state) {
+		muted = state;
+	}
+
+	public boolean muted() {
+		return muted;
+	}
+
+	public void saveState(ByteBuffer out) {
+		generatePendingSamples();
+		channel0.saveState(out);
+		channel1.saveState(out);
+		out.putShort((short) generatedSamples);
+		saveMixerState(out);
+	}
+
+	public void loadState(ByteBuffer in) {
+		channel0.loadState(in);
+		channel1.loadState(in);
+		generatedSamples = in.getShort();
+		pendingSamples = 0;
+		loadMixerState(in);
+	}
+
 	public void signalOff() {
 		if (monitor != null) monitor.nextSamples(null, 0);
 	}
@@ -45,18 +74,34 @@ public abstract class AudioGenerator implements AudioSignal, ClockDriven {
 	}
 
 	public void videoStandard(VideoStandard standard) {
+		generatePendingSamples();
 		// Perfect amount is 2 sample per scanline = 31440, 524 for NTSC(60Hz) and 624 for PAL(50hz)
 		samplesPerFrame = (int) Math.round(SAMPLE_RATE / standard.fps);	
 	}
 
-	protected abstract void generateNextSamples(int min);
+	// Called by the channels before any change, so samples counted so far use the previous settings
+	void generatePendingSamples() {
+		if (pendingSamples == 0) return;
+		int quant = pendingSamples;
+		pendingSamples = 0;
+		generateNextSamples(quant);
+	}
+
+	protected abstract void generateNextSamples(int quant);
+
+	// State carried by the mixer from one sample to the next, so restored frames sound the same
+	protected abstract void saveMixerState(ByteBuffer out);
+
+	protected abstract void loadMixerState(ByteBuffer in);
 
 	
-	protected final ChannelStream channel0 = new ChannelStream(); 
-	protected final ChannelStream channel1 = new ChannelStream(); 
-	protected final byte[] samples = new byte[2048];	// More than enough samples for a frame
+	protected final ChannelStream channel0 = new ChannelStream(this); 
+	protected final ChannelStream channel1 = new ChannelStream(this); 
+	protected final short[] samples = new short[2048];	// More than enough samples for a frame. 16 bit signed PCM
 	protected int generatedSamples = 0;
+	private int pendingSamples = 0;
 	private int samplesPerFrame = 0;
+	private boolean muted = false;
 
 	private AudioMonitor monitor;
 
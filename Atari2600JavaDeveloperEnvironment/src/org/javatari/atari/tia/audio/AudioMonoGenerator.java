@@ -2,27 +2,51 @@
 
 package org.javatari.atari.tia.audio;
 
+import java.nio.ByteBuffer;
+
 import org.javatari.parameters.Parameters;
 
 public final class AudioMonoGenerator extends AudioGenerator {
 
 	@Override
 	protected void generateNextSamples(int quant) {
-		for (int i = quant; i > 0; i--) {
-			float mixedSample = channel0.nextSample() - channel1.nextSample();
-
-			// Add a little damper effect to round the edges of the square wave
-			if (mixedSample != lastSample) {
-				mixedSample = (mixedSample * 9 + lastSample) / 10;
-				lastSample = mixedSample;
-			}
-			
-			samples[generatedSamples++] = (byte) (mixedSample * MAX_AMPLITUDE * 127);
+		channel0.nextSamples(channel0Levels, 0, quant);
+		channel1.nextSamples(channel1Levels, 0, quant);
+		int last = lastSample;
+		for (int i = 0; i < quant; i++) {
+			int mixedSample = MIX[(channel0Levels[i] << 4) | channel1Levels[i]];
+
+			// Add a little damper effect to round the edges of the square wave. Each sample closes 90% of the distance
+			last = mixedSample - (((mixedSample - last) * DAMPER_REMAINING + 0x8000) >> 16);
+
+			samples[generatedSamples++] = (short) last;
 		}
+		lastSample = last;
+	}
+
+	@Override
+	protected void saveMixerState(ByteBuffer out) {
+		out.putShort((short) lastSample);
 	}
 
-	private float lastSample;
+	@Override
+	protected void loadMixerState(ByteBuffer in) {
+		lastSample = in.getShort();
+	}
+
+	private int lastSample;
+	private final byte[] channel0Levels = new byte[samples.length];
+	private final byte[] channel1Levels = new byte[samples.length];
 	
 	private static final float MAX_AMPLITUDE = Parameters.TIA_AUDIO_MAX_AMPLITUDE;
+	private static final int DAMPER_REMAINING = 6554;		// 0.1 in 16.16 fixed point, rounded so the edges settle exactly
+
+	// 16 bit sample for each pair of channel volumes (0 - 15) 
+	private static final short[] MIX = new short[16 * 16];
+	static {
+		for (int v0 = 0; v0 < 16; v0++)
+			for (int v1 = 0; v1 < 16; v1++)
+				MIX[(v0 << 4) | v1] = (short) Math.round((v0 - v1) / 15f * MAX_AMPLITUDE * 32767);
+	}
 	
 }
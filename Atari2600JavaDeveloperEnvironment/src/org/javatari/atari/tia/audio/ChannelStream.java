@@ -2,142 +2,193 @@
 
 package org.javatari.atari.tia.audio;
 
+import java.nio.ByteBuffer;
+
+
 public final class ChannelStream {
 
-	public float nextSample() {				// Range 0 - 1
-		if (--dividerCountdown <= 0) {
-			dividerCountdown = divider;
-			currentSample = nextSampleForControl();
+	ChannelStream(AudioGenerator generator) {
+		this.generator = generator;
+	}
+
+	// Fills count samples, each the volume (0 - 15) or 0. Samples repeat in runs until the next divided step
+	public void nextSamples(byte[] out, int offset, int count) {
+		int end = offset + count;
+		int i = offset;
+		if (divider == 1 && dividerCountdown <= 1 && i < end) {
+			// Steps at every sample
+			for (; i < end; i++)
+				out[i] = (currentSample = nextSampleForControl()) == 1 ? volume : 0;
+			dividerCountdown = 1;
+			return;
+		}
+		while (i < end) {
+			if (--dividerCountdown <= 0) {
+				dividerCountdown = divider;
+				currentSample = nextSampleForControl();
+			}
+			byte level = currentSample == 1 ? volume : 0;
+			int run = dividerCountdown < end - i ? dividerCountdown : end - i;
+			dividerCountdown -= run - 1;
+			for (int r = run; r > 0; r--)
+				out[i++] = level;
 		}
-		return currentSample == 1 ? volume : 0;
 	}
 	
 	public void setVolume(int newVolume) {
-		volume = (float)newVolume / MAX_VOLUME;
+		if (volume == newVolume) return;
+		generator.generatePendingSamples();
+		volume = (byte) newVolume;
 	}
 
 	public void setDivider(int newDivider) {
 		if (divider == newDivider) return;
+		generator.generatePendingSamples();
 		dividerCountdown = (int)(((float)dividerCountdown / divider) * newDivider);
 		divider = newDivider;
 	}
 
 	public void setControl(int control) {
 		if (this.control == control) return;
+		generator.generatePendingSamples();
 		this.control = control;
 	}
 	
-	private int nextSampleForControl() {
-		if (control == 0x00 || control == 0x0b) 
-			return 1;																// Silence  ("set to 1" per specification)
-		if (control == 0x01) 
-			return nextPoly4();														// 4 bit poly
-		if (control == 0x02) 
-			return currentTone31() != nextTone31() ? nextPoly4() : currentPoly4();	// div 15 > 4 bit poly
-		if (control == 0x03)
-			return nextPoly5() == 1 ? nextPoly4(): currentPoly4();					// 5 bit poly > 4 bit poly
-		if (control == 0x04 || control == 0x05) 
-			return nextTone2();														// div 2 pure tone
-		if (control == 0x06 || control == 0x0a)
-			return nextTone31();													// div 31 pure tone (18 high, 13, low)
-		if (control == 0x07 || control == 0x09)
-			return nextPoly5();														// 5 bit poly
-		if (control == 0x08)
-			return nextPoly9();														// 9 bit poly
-		if (control == 0x0c || control == 0x0d)
-			return nextTone6();														// div 6 pure tone (3 high, 3 low)
-		if (control == 0x0e)
-			return currentTone31() != nextTone31() ? nextTone6() : currentTone6();	// div 93 pure tone	(31 tone each 3)
-		if (control == 0x0f)
-			return nextPoly5() == 1 ? nextTone6() : currentTone6();					// 5 bit poly div 6 (poly 5 each 3)
-
-		throw new IllegalStateException("Invalid TIA Audio Channel Control: " + control);
-	}
-
-	private int currentPoly4() {
-		return poly4 & 0x01;
+	// Only the stream position, with the polys as their shift registers. Volume, control and divider come from the TIA registers
+	public void saveState(ByteBuffer out) {
+		out.put((byte) dividerCountdown);
+		out.put((byte) currentSample);
+		out.put((byte) POLY4_REGISTERS[poly4]);
+		out.put((byte) POLY5_REGISTERS[poly5]);
+		out.putShort((short) POLY9_REGISTERS[poly9]);
+		out.put((byte) tone2);
+		out.put((byte) (tone6 < 3 ? 1 : 0));
+		out.put((byte) (3 - tone6 % 3));
+		out.put((byte) tone31);
 	}
 
-	private int nextPoly4() {
-		final int carry = poly4 & 0x01;					// bit 0
-		final int push = ((poly4 >> 1) ^ carry) & 0x01;	// bit 1 XOR bit 0
-		poly4 = poly4 >>> 1;							// shift right
-		if (push == 0)									// set bit 3 = push
-			poly4 &= 0x07;
-		else
-			poly4 |= 0x08;
-		return carry;
+	public void loadState(ByteBuffer in) {
+		dividerCountdown = in.get();
+		currentSample = in.get();
+		poly4 = POLY4_PHASES[in.get() & 0x0f];
+		poly5 = POLY5_PHASES[in.get() & 0x1f];
+		poly9 = POLY9_PHASES[in.getShort() & 0x1ff];
+		tone2 = in.get();
+		int tone6Value = in.get();
+		int tone6Countdown = in.get();
+		tone6 = (tone6Value == 1 ? 0 : 3) + 3 - tone6Countdown;
+		tone31 = in.get();
 	}
 
-	private int nextPoly5() {
-		final int carry = poly5 & 0x01;					// bit 0
-		final int push = ((poly5 >> 2) ^ carry) & 0x01;	// bit 2 XOR bit 0
-		poly5 = poly5 >>> 1;							// shift right
-		if (push == 0)									// set bit 4 = push
-			poly5 &= 0x0f;
-		else
-			poly5 |= 0x10;
-		return carry;
-	}
-
-	private int nextPoly9() {
-		final int carry = poly9 & 0x01;					// bit 0
-		final int push = ((poly9 >> 4) ^ carry) & 0x01;	// bit 4 XOR bit 0
-		poly9 = poly9 >>> 1;							// shift right
-		if (push == 0)									// set bit 8 = push
-			poly9 &= 0x0ff;
-		else
-			poly9 |= 0x100;
-		return carry;
-	}
-
-	private int nextTone2() {
-		return tone2 = tone2 == 0 ? 1 : 0;
-	}
-
-	private int currentTone6() {
-		return tone6;
+	// Each source is a phase in its full period table. Polys give the bit shifted out and then step, as the old shift registers did
+	private int nextSampleForControl() {
+		int bit;
+		switch (control) {
+			case 0x00: case 0x0b:
+				return 1;														// Silence  ("set to 1" per specification)
+			case 0x01:															// 4 bit poly
+				bit = POLY4[poly4];
+				poly4 = POLY4_NEXT[poly4];
+				return bit;
+			case 0x02:															// div 15 > 4 bit poly
+				bit = POLY4[poly4];
+				if (TONE31_EDGE[tone31]) poly4 = POLY4_NEXT[poly4];
+				tone31 = TONE31_NEXT[tone31];
+				return bit;
+			case 0x03:															// 5 bit poly > 4 bit poly
+				bit = POLY4[poly4];
+				if (POLY5[poly5] == 1) poly4 = POLY4_NEXT[poly4];
+				poly5 = POLY5_NEXT[poly5];
+				return bit;
+			case 0x04: case 0x05:
+				return tone2 ^= 1;												// div 2 pure tone
+			case 0x06: case 0x0a:
+				return TONE31[tone31 = TONE31_NEXT[tone31]];					// div 31 pure tone (18 high, 13, low)
+			case 0x07: case 0x09:												// 5 bit poly
+				bit = POLY5[poly5];
+				poly5 = POLY5_NEXT[poly5];
+				return bit;
+			case 0x08:															// 9 bit poly
+				bit = POLY9[poly9];
+				poly9 = POLY9_NEXT[poly9];
+				return bit;
+			case 0x0c: case 0x0d:
+				return TONE6[tone6 = TONE6_NEXT[tone6]];						// div 6 pure tone (3 high, 3 low)
+			case 0x0e:															// div 93 pure tone	(31 tone each 3)
+				if (TONE31_EDGE[tone31]) tone6 = TONE6_NEXT[tone6];
+				tone31 = TONE31_NEXT[tone31];
+				return TONE6[tone6];
+			case 0x0f:															// 5 bit poly div 6 (poly 5 each 3)
+				if (POLY5[poly5] == 1) tone6 = TONE6_NEXT[tone6];
+				poly5 = POLY5_NEXT[poly5];
+				return TONE6[tone6];
+		}
+		throw new IllegalStateException("Invalid TIA Audio Channel Control: " + control);
 	}
 
-	private int nextTone6() {
-		if (--tone6Countdown == 0) {
-			tone6Countdown = 3;
-			tone6 = tone6 == 0 ? 1 : 0;
+	// Walks a shift register through its full period. bits[p] is the bit shifted out at phase p, registers[p] the register value
+	private static void polyTables(int length, int tap, int[] bits, int[] registers, int[] phases) {
+		int top = length - 1;
+		int poly = (1 << length) - 1;
+		for (int p = 0; p < bits.length; p++) {
+			registers[p] = poly;
+			phases[poly] = p;
+			final int carry = poly & 0x01;					// bit 0
+			final int push = ((poly >> tap) ^ carry) & 0x01;	// bit tap XOR bit 0
+			poly = (poly >>> 1) | (push << top);			// shift right, set top bit = push
+			bits[p] = carry;
 		}
-		return tone6;
+		if (poly != registers[0]) throw new IllegalStateException("Poly period is not " + bits.length);
 	}
 
-	private int currentTone31() {
-		return TONE31_STREAM[tone31Count];
+	private static int[] nextPhases(int period) {
+		int[] next = new int[period];
+		for (int p = 0; p < period; p++)
+			next[p] = (p + 1) % period;
+		return next;
 	}
 
-	private int nextTone31() {
-		if (++tone31Count == 31)
-			tone31Count = 0;
-		return TONE31_STREAM[tone31Count];
-	}
+	private final AudioGenerator generator;
 
-	private float volume = 0;					// 0 - 1
+	private byte volume = 0;					// 0 - 15
 	private int control = 0;					// 0-f
 	private int divider = 1;					// Changes to dividers will only be reflected at the next countdown cycle
 	private int dividerCountdown = 1;
 	
 	private int currentSample = 0;
 	
-	private int poly4 = 0x0f;
-	private int poly5 = 0x1f;
-	private int poly9 = 0x1ff;
+	private int poly4 = 0;						// Phases, starting with all register bits set
+	private int poly5 = 0;
+	private int poly9 = 0;
 	
 	private int tone2 = 1;
 	
-	private int tone6 = 1;
-	private int tone6Countdown = 3;
+	private int tone6 = 0;						// 0-2 high, 3-5 low
+
+	private int tone31 = 30;
+
+	private static final int[] POLY4 = new int[15], POLY4_REGISTERS = new int[15], POLY4_PHASES = new int[16];
+	private static final int[] POLY5 = new int[31], POLY5_REGISTERS = new int[31], POLY5_PHASES = new int[32];
+	private static final int[] POLY9 = new int[511], POLY9_REGISTERS = new int[511], POLY9_PHASES = new int[512];
+	static {
+		polyTables(4, 1, POLY4, POLY4_REGISTERS, POLY4_PHASES);		// bit 1 XOR bit 0
+		polyTables(5, 2, POLY5, POLY5_REGISTERS, POLY5_PHASES);		// bit 2 XOR bit 0
+		polyTables(9, 4, POLY9, POLY9_REGISTERS, POLY9_PHASES);		// bit 4 XOR bit 0
+	}
+	private static final int[] POLY4_NEXT = nextPhases(15);
+	private static final int[] POLY5_NEXT = nextPhases(31);
+	private static final int[] POLY9_NEXT = nextPhases(511);
 
-	private int tone31Count = 30;
-	private static final int[] TONE31_STREAM = new int[] { 
+	private static final int[] TONE6 = { 1, 1, 1, 0, 0, 0 };
+	private static final int[] TONE6_NEXT = nextPhases(6);
+	private static final int[] TONE31 = new int[] { 
 		1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0
 	};
-	
-	private static final int   MAX_VOLUME = 15;
+	private static final int[] TONE31_NEXT = nextPhases(31);
+	private static final boolean[] TONE31_EDGE = new boolean[31];
+	static {
+		for (int p = 0; p < 31; p++)
+			TONE31_EDGE[p] = TONE31[p] != TONE31[TONE31_NEXT[p]];
+	}
 
 }
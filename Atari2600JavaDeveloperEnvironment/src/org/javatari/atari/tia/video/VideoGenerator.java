@@ -2,17 +2,50 @@
 
 package org.javatari.atari.tia.video;
 
+import java.nio.ByteBuffer;
+
+import org.javatari.general.av.video.DirectVideoMonitor;
 import org.javatari.general.av.video.VideoMonitor;
 import org.javatari.general.av.video.VideoSignal;
 import org.javatari.general.av.video.VideoStandard;
+import org.javatari.parameters.Parameters;
 
 public final class VideoGenerator implements VideoSignal {
 
 	public boolean nextLine(final int[] pixels, boolean vSynch) {
+		boolean frameEnded = lineCounted(vSynch);
+		if (hidden) return frameEnded;
 		if (monitor == null) return false;
 		return monitor.nextLine(pixels, vSynch);
 	}
 
+	public boolean lineRendered(boolean vSynch) {
+		boolean frameEnded = lineCounted(vSynch);
+		if (hidden) return frameEnded;
+		if (directMonitor == null) return false;
+		return directMonitor.lineRendered(vSynch);
+	}
+
+	// Returns null if the monitor does not lend its buffer
+	public int[] lineBuffer() {
+		if (directMonitor == null || hidden) return null;
+		return directMonitor.lineBuffer();
+	}
+
+	public int lineBufferOffset() {
+		if (directMonitor == null) return 0;
+		return directMonitor.lineBufferOffset();
+	}
+
+	// Hidden frames are not sent to the monitor, and end by the lines counted here with the same criteria of the monitors
+	public void hidden(boolean state) {
+		hidden = state;
+	}
+
+	public boolean hidden() {
+		return hidden;
+	}
+
 	public void signalOff() {
 		if (monitor != null) monitor.nextLine(null, false);
 	}
@@ -34,13 +67,43 @@ public final class VideoGenerator implements VideoSignal {
 	@Override
 	public void connectMonitor(VideoMonitor monitor) {
 		this.monitor = monitor;
+		this.directMonitor = monitor instanceof DirectVideoMonitor ? (DirectVideoMonitor) monitor : null;
 	}
 
 	public void standard(VideoStandard standard) {
 		this.standard = standard;
 	}
 
+	// The line count is part of the state so frames keep ending at the same points after a restore, even without vsync
+	public void saveState(ByteBuffer out) {
+		out.putShort((short) line);
+	}
+
+	public void loadState(ByteBuffer in) {
+		line = in.getShort();
+	}
+
+	// Same sequence as the Monitor, including the line counted after a frame ended by exceeding the maximum
+	private boolean lineCounted(boolean vSynch) {
+		boolean vSynched = false;
+		if (line > standard.height + VSYNC_TOLERANCE) {
+			line = 0;
+			vSynched = true;
+		}
+		line++;
+		if (vSynch && line >= standard.height - VSYNC_TOLERANCE) {
+			line = 0;
+			vSynched = true;
+		}
+		return vSynched;
+	}
+
 	private VideoMonitor monitor;
+	private DirectVideoMonitor directMonitor;
 	private VideoStandard standard;
+	private boolean hidden = false;
+	private int line = 0;
+
+	private static final int VSYNC_TOLERANCE = Parameters.SCREEN_VSYNC_TOLERANCE;
 	
 }
@@ -0,0 +1,59 @@
+// Copyright 2011-2012 Paulo Augusto Peccin. See licence.txt distributed with this file.
+
+package org.javatari.general.av.audio;
+
+
+/**
+ * Keeps the audio output buffer at a low target fill level by nudging the sample rate a fraction of a percent.
+ * The target starts low, grows after each underrun and shrinks back while the machine keeps up
+ */
+public final class AudioLatencyController {
+
+	public AudioLatencyController(int minTarget, int maxTarget, double maxRateDeviation) {
+		this.minTarget = minTarget;
+		this.maxTarget = Math.max(minTarget, maxTarget);
+		rateControl = new AudioRateController(RATE_GAIN, maxRateDeviation);
+		target = minTarget;
+	}
+
+	// Samples to keep queued right before each new frame arrives
+	public int target() {
+		return target;
+	}
+
+	public double ratio() {
+		return rateControl.ratio();
+	}
+
+	// Once per frame, with the samples still queued and the underrun count so far. Returns the rate ratio to apply
+	public double update(int buffered, long underruns) {
+		if (underruns != lastUnderruns) {
+			lastUnderruns = underruns;
+			target = Math.min(maxTarget, target + (target >> 1));
+			stableFrames = 0;
+		} else if (++stableFrames >= STABLE_FRAMES && target > minTarget) {
+			target = Math.max(minTarget, target - (target >> 3));
+			stableFrames = 0;
+		}
+		// Buffer above target: fewer samples. Below: more
+		return rateControl.update(buffered, target);
+	}
+
+	// After a flush. The target learned is kept
+	public void reset() {
+		rateControl.reset();
+		stableFrames = 0;
+	}
+
+
+	private final int minTarget;
+	private final int maxTarget;
+	private final AudioRateController rateControl;
+	private int target;
+	private int stableFrames = 0;
+	private long lastUnderruns = 0;
+
+	private static final double RATE_GAIN = 0.01;
+	private static final int STABLE_FRAMES = 300;		// About 5 seconds with no underruns before lowering the target
+
+}
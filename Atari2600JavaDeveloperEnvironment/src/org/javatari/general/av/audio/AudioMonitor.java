@@ -4,7 +4,7 @@ package org.javatari.general.av.audio;
 
 public interface AudioMonitor  {
 
-	public void nextSamples(byte[] samples, int quant);
+	public void nextSamples(short[] samples, int quant);		// 16 bit signed PCM
 
 	public void synchOutput();
 	
@@ -0,0 +1,54 @@
+// Copyright 2011-2012 Paulo Augusto Peccin. See licence.txt distributed with this file.
+
+package org.javatari.general.av.audio;
+
+
+/**
+ * Sits between an AudioSignal and its AudioMonitor, passing every frame on and also handing it to a WAV capture when one is set.
+ * Buffer levels are passed through, so the Console can still be paced by a BufferedAudioMonitor behind it
+ */
+public final class AudioMonitorTee implements BufferedAudioMonitor, AudioSignal {
+
+	public void connect(AudioSignal signal) {
+		signal.connectMonitor(this);
+	}
+
+	@Override
+	public void connectMonitor(AudioMonitor monitor) {
+		this.monitor = monitor;
+	}
+
+	// Starts or stops capturing. Returns the capture replaced, for the caller to close
+	public WavAudioWriter capture(WavAudioWriter capture) {
+		WavAudioWriter previous = this.capture;
+		this.capture = capture;
+		return previous;
+	}
+
+	@Override
+	public void nextSamples(short[] samples, int quant) {
+		WavAudioWriter c = capture;
+		if (c != null && samples != null) c.write(samples, quant);
+		if (monitor != null) monitor.nextSamples(samples, quant);
+	}
+
+	@Override
+	public void synchOutput() {
+		if (monitor != null) monitor.synchOutput();
+	}
+
+	@Override
+	public int bufferedSamples() {
+		return monitor instanceof BufferedAudioMonitor ? ((BufferedAudioMonitor) monitor).bufferedSamples() : 0;
+	}
+
+	@Override
+	public int bufferTargetSamples() {
+		return monitor instanceof BufferedAudioMonitor ? ((BufferedAudioMonitor) monitor).bufferTargetSamples() : 0;
+	}
+
+
+	private AudioMonitor monitor;
+	private volatile WavAudioWriter capture;
+
+}
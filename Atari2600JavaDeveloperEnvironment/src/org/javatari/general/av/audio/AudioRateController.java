@@ -0,0 +1,47 @@
+// Copyright 2011-2012 Paulo Augusto Peccin. See licence.txt distributed with this file.
+
+package org.javatari.general.av.audio;
+
+
+/**
+ * Proportional control of a rate from the fill level of an audio buffer.
+ * The fill error is smoothed, and the rate deviation is limited to a fraction of a percent so the pitch change is not heard
+ */
+public final class AudioRateController {
+
+	public AudioRateController(double gain, double maxRateDeviation) {
+		this.gain = gain;
+		this.maxRateDeviation = maxRateDeviation;
+	}
+
+	public double ratio() {
+		return ratio;
+	}
+
+	// With the samples buffered and the level aimed at. Returns the rate ratio to apply
+	public double update(int buffered, int target) {
+		// Smooth the error, as the fill level read jumps with the device period and peaks right after each frame
+		double error = (double) (buffered - target) / target;
+		fillError += (error - fillError) * ERROR_SMOOTHING;
+		double deviation = fillError * gain;
+		if (deviation > maxRateDeviation) deviation = maxRateDeviation;
+		else if (deviation < -maxRateDeviation) deviation = -maxRateDeviation;
+		// Buffer above target: slower rate. Below: faster
+		ratio = 1 - deviation;
+		return ratio;
+	}
+
+	public void reset() {
+		fillError = 0;
+		ratio = 1;
+	}
+
+
+	private final double gain;
+	private final double maxRateDeviation;
+	private double fillError = 0;
+	private double ratio = 1;
+
+	private static final double ERROR_SMOOTHING = 0.1;
+
+}
@@ -0,0 +1,114 @@
+// Copyright 2011-2012 Paulo Augusto Peccin. See licence.txt distributed with this file.
+
+package org.javatari.general.av.audio;
+
+import java.util.Arrays;
+
+
+/**
+ * Polyphase band-limited resampler for 16 bit mono blocks, from any input rate to any output rate.
+ * Windowed sinc taps are precomputed for each phase, and the position runs in 32.32 fixed point.
+ * The ratio can be nudged a little at any time to correct drift between the producer and the output device
+ */
+public final class AudioResampler {
+
+	public AudioResampler(int inputRate, int outputRate, int maxBlock) {
+		this.inputRate = inputRate;
+		this.outputRate = outputRate;
+		history = new short[TAPS + maxBlock];
+		coefficients = new short[PHASES * TAPS];
+		// Cut below the lowest Nyquist frequency, with some room for the filter transition
+		double cutoff = Math.min(1, (double) outputRate / inputRate) * CUTOFF;
+		for (int p = 0; p < PHASES; p++) {
+			double frac = (double) p / PHASES;
+			double[] taps = new double[TAPS];
+			double sum = 0;
+			for (int k = 0; k < TAPS; k++) {
+				double t = k - (TAPS / 2 - 1) - frac;
+				double x = Math.PI * cutoff * t;
+				double sinc = t == 0 ? 1 : Math.sin(x) / x;
+				double w = 2 * Math.PI * (t + TAPS / 2) / TAPS;		// Blackman window centered on the sample, shifted with the phase
+				taps[k] = sinc * (0.42 - 0.5 * Math.cos(w) + 0.08 * Math.cos(2 * w));
+				sum += taps[k];
+			}
+			// Unity gain at each phase
+			for (int k = 0; k < TAPS; k++)
+				coefficients[p * TAPS + k] = (short) Math.round(taps[k] / sum * ONE);
+		}
+		ratio(1);
+		reset();
+	}
+
+	public int inputRate() {
+		return inputRate;
+	}
+
+	public int outputRate() {
+		return outputRate;
+	}
+
+	// Multiplies the output rate. Above 1 gives more output samples for the same input
+	public void ratio(double ratio) {
+		this.ratio = ratio;
+		step = (long) ((double) inputRate / (outputRate * ratio) * (1L << 32));
+	}
+
+	public double ratio() {
+		return ratio;
+	}
+
+	// Output samples to expect for count input samples, plus one for the fraction carried
+	public int maxOutput(int count) {
+		return (int) (((long) count << 32) / step) + 2;
+	}
+
+	public void reset() {
+		Arrays.fill(history, 0, TAPS, (short) 0);
+		available = TAPS - 1;
+		position = 0;
+	}
+
+	// Consumes count input samples and returns how many output samples were written. A whole frame block at a time
+	public int process(short[] input, int count, short[] output) {
+		if (count > history.length - available) throw new IllegalStateException("Audio block bigger than the Resampler maximum");
+		System.arraycopy(input, 0, history, available, count);
+		available += count;
+		int produced = 0;
+		long pos = position;
+		while ((int) (pos >>> 32) + TAPS <= available) {
+			int index = (int) (pos >>> 32);
+			int c = (int) (pos >>> (32 - PHASE_BITS)) & (PHASES - 1);
+			c *= TAPS;
+			int acc = 0;
+			for (int k = 0; k < TAPS; k++)
+				acc += history[index + k] * coefficients[c + k];
+			acc = (acc + (ONE >> 1)) >> ONE_BITS;
+			output[produced++] = (short) (acc > Short.MAX_VALUE ? Short.MAX_VALUE : acc < Short.MIN_VALUE ? Short.MIN_VALUE : acc);
+			pos += step;
+		}
+		// Keep the samples still needed by the next outputs
+		int consumed = (int) (pos >>> 32);
+		System.arraycopy(history, consumed, history, 0, available - consumed);
+		available -= consumed;
+		position = pos - ((long) consumed << 32);
+		return produced;
+	}
+
+
+	private final int inputRate;
+	private final int outputRate;
+	private final short[] history;
+	private final short[] coefficients;
+	private int available;
+	private long position;			// 32.32 fixed point, in input samples from the start of the history
+	private long step;
+	private double ratio;
+
+	private static final int TAPS = 16;
+	private static final int PHASE_BITS = 8;
+	private static final int PHASES = 1 << PHASE_BITS;
+	private static final int ONE_BITS = 14;				// Coefficients in 2.14 fixed point, so sums of 16 bit samples fit an int
+	private static final int ONE = 1 << ONE_BITS;
+	private static final double CUTOFF = 0.9;
+
+}
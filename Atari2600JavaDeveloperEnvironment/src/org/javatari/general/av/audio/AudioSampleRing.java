@@ -0,0 +1,67 @@
+// Copyright 2011-2012 Paulo Augusto Peccin. See licence.txt distributed with this file.
+
+package org.javatari.general.av.audio;
+
+
+/**
+ * Lock-free ring of 16 bit samples for exactly one producer Thread and one consumer Thread.
+ * Each side only writes its own position, published through a volatile field after the samples are in place
+ */
+public final class AudioSampleRing {
+
+	public AudioSampleRing(int minCapacity) {
+		int capacity = Integer.highestOneBit(Math.max(minCapacity, 2) - 1) << 1;
+		samples = new short[capacity];
+		mask = capacity - 1;
+	}
+
+	public int capacity() {
+		return samples.length;
+	}
+
+	// Samples waiting. Exact for the consumer, at least this much for the producer
+	public int size() {
+		return (int) (writePosition - readPosition);
+	}
+
+	// Producer only. Returns how many samples fit, the rest is dropped
+	public int put(short[] source, int quant) {
+		long write = writePosition;
+		int free = samples.length - (int) (write - readPosition);
+		if (quant > free) quant = free;
+		int start = (int) write & mask;
+		int first = Math.min(quant, samples.length - start);
+		System.arraycopy(source, 0, samples, start, first);
+		System.arraycopy(source, first, samples, 0, quant - first);
+		writePosition = write + quant;
+		return quant;
+	}
+
+	// Consumer only. Samples go out as 16 bit signed little endian bytes, as audio lines take them
+	public int get(byte[] dest, int maxQuant) {
+		long read = readPosition;
+		int quant = (int) (writePosition - read);
+		if (quant > maxQuant) quant = maxQuant;
+		int pos = (int) read & mask;
+		for (int i = 0, d = 0; i < quant; i++, d += 2) {
+			short sample = samples[pos];
+			dest[d] = (byte) sample;
+			dest[d + 1] = (byte) (sample >> 8);
+			pos = (pos + 1) & mask;
+		}
+		readPosition = read + quant;
+		return quant;
+	}
+
+	// Consumer only
+	public void skipAll() {
+		readPosition = writePosition;
+	}
+
+
+	private final short[] samples;
+	private final int mask;
+	private volatile long writePosition = 0;
+	private volatile long readPosition = 0;
+
+}
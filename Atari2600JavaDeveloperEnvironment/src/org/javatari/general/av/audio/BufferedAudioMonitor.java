@@ -0,0 +1,14 @@
+// Copyright 2011-2012 Paulo Augusto Peccin. See licence.txt distributed with this file.
+
+package org.javatari.general.av.audio;
+
+/** AudioMonitor that reports how much audio is queued, so the producer can pace itself by the output device */
+public interface BufferedAudioMonitor extends AudioMonitor {
+
+	// Samples received and not yet played. 0 if no output available
+	public int bufferedSamples();
+
+	// Level the monitor wants to keep right after each synchOutput(). 0 if no output available
+	public int bufferTargetSamples();
+
+}
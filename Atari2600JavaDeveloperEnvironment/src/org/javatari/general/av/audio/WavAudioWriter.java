@@ -0,0 +1,150 @@
+// Copyright 2011-2012 Paulo Augusto Peccin. See licence.txt distributed with this file.
+
+package org.javatari.general.av.audio;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.util.concurrent.ArrayBlockingQueue;
+
+
+/**
+ * Writes 16 bit mono sample blocks to a WAV file from a background Thread.
+ * Blocks come from a preallocated pool, so the producer never allocates or waits. With no free block the samples are dropped and counted
+ */
+public final class WavAudioWriter {
+
+	public WavAudioWriter(File file, int sampleRate) throws IOException {
+		this.file = file;
+		this.sampleRate = sampleRate;
+		stream = new BufferedOutputStream(new FileOutputStream(file), 65536);
+		writeHeader(stream, 0);
+		for (int i = 0; i < BLOCKS; i++) free.add(new Block());
+		writer = new Thread("WAV Audio Writer") { public void run() {
+			writeBlocks();
+		}};
+		writer.setDaemon(true);
+		writer.start();
+	}
+
+	// Producer Thread. Never blocks
+	public void write(short[] samples, int quant) {
+		if (closed) return;
+		Block block = free.poll();
+		if (block == null) {
+			droppedSamples += quant;
+			return;
+		}
+		if (quant > block.samples.length) quant = block.samples.length;
+		System.arraycopy(samples, 0, block.samples, 0, quant);
+		block.quant = quant;
+		filled.add(block);		// Always room, as the queue holds all the Blocks
+	}
+
+	// Waits for all Blocks queued to be written and fixes the header sizes
+	public void close() throws IOException {
+		if (closed) return;
+		closed = true;
+		filled.add(END);
+		try {
+			writer.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		stream.close();
+		if (error != null) throw error;
+		RandomAccessFile raf = new RandomAccessFile(file, "rw");
+		try {
+			raf.seek(4);
+			raf.write(intLE(36 + dataBytes));
+			raf.seek(40);
+			raf.write(intLE(dataBytes));
+		} finally {
+			raf.close();
+		}
+	}
+
+	public File file() {
+		return file;
+	}
+
+	public long samples() {
+		return dataBytes / BYTES_PER_SAMPLE;
+	}
+
+	public long droppedSamples() {
+		return droppedSamples;
+	}
+
+	private void writeBlocks() {
+		byte[] bytes = new byte[Block.SIZE * BYTES_PER_SAMPLE];
+		while (true) {
+			Block block;
+			try {
+				block = filled.take();
+			} catch (InterruptedException e) {
+				return;
+			}
+			if (block == END) return;
+			if (error == null) {
+				for (int i = 0, b = 0; i < block.quant; i++, b += 2) {
+					short sample = block.samples[i];
+					bytes[b] = (byte) sample;
+					bytes[b + 1] = (byte) (sample >> 8);
+				}
+				try {
+					stream.write(bytes, 0, block.quant * BYTES_PER_SAMPLE);
+					dataBytes += block.quant * BYTES_PER_SAMPLE;
+				} catch (IOException e) {
+					error = e;		// Keep recycling Blocks, reported on close
+				}
+			}
+			free.add(block);
+		}
+	}
+
+	// Sizes are fixed on close
+	private void writeHeader(OutputStream out, int dataSize) throws IOException {
+		out.write(new byte[] { 'R', 'I', 'F', 'F' });
+		out.write(intLE(36 + dataSize));
+		out.write(new byte[] { 'W', 'A', 'V', 'E', 'f', 'm', 't', ' ' });
+		out.write(intLE(16));
+		out.write(new byte[] { 1, 0, 1, 0 });		// PCM, mono
+		out.write(intLE(sampleRate));
+		out.write(intLE(sampleRate * BYTES_PER_SAMPLE));
+		out.write(new byte[] { BYTES_PER_SAMPLE, 0, 16, 0 });
+		out.write(new byte[] { 'd', 'a', 't', 'a' });
+		out.write(intLE(dataSize));
+	}
+
+	private static byte[] intLE(int value) {
+		return new byte[] { (byte) value, (byte) (value >> 8), (byte) (value >> 16), (byte) (value >> 24) };
+	}
+
+
+	private final File file;
+	private final int sampleRate;
+	private final OutputStream stream;
+	private final Thread writer;
+	private final ArrayBlockingQueue<Block> free = new ArrayBlockingQueue<Block>(BLOCKS);
+	private final ArrayBlockingQueue<Block> filled = new ArrayBlockingQueue<Block>(BLOCKS + 1);
+	private volatile boolean closed = false;
+	private volatile long droppedSamples = 0;
+	private volatile int dataBytes = 0;
+	private volatile IOException error;
+
+	private static final int BLOCKS = 64;			// About a second of frames behind the disk
+	private static final byte BYTES_PER_SAMPLE = 2;
+	private static final Block END = new Block();
+
+
+	private static final class Block {
+		final short[] samples = new short[SIZE];
+		int quant;
+		static final int SIZE = 2048;		// Same as the generator frame buffer
+	}
+
+}
@@ -0,0 +1,15 @@
+// Copyright 2011-2012 Paulo Augusto Peccin. See licence.txt distributed with this file.
+
+package org.javatari.general.av.video;
+
+/** VideoMonitor that lends a row of its back buffer so lines can be rendered in place, with no copy */
+public interface DirectVideoMonitor extends VideoMonitor {
+
+	// Buffer and offset where the next line should be rendered
+	public int[] lineBuffer();
+	public int lineBufferOffset();
+
+	// The line lent was fully rendered. Same semantics as nextLine()
+	public boolean lineRendered(boolean vSynch);
+
+}
@@ -3,6 +3,9 @@
 package org.javatari.general.board;
 
 import java.util.Locale;
+import java.util.concurrent.locks.LockSupport;
+
+import org.javatari.parameters.Parameters;
 
 public final class Clock extends Thread {
 
@@ -49,9 +52,17 @@ public final class Clock extends Thread {
 		pause();
 		this.hertz = hertz;
 		cycleDuration = hertz > 0 ? (long) (1 / hertz * 1000000000) : (long)hertz;
+		cyclePeriod = (long) (cycleDuration / rate);
 		if (wasRunning) go();
 	}
 
+	// Fine adjustment of the speed relative to the set frequency, without restarting the pacing. Call from the running Clock only
+	public void rate(double rate) {
+		if (this.rate == rate) return;
+		this.rate = rate;
+		cyclePeriod = (long) (cycleDuration / rate);
+	}
+
 	@Override
 	public synchronized void run() {
 		while(alive) {
@@ -60,26 +71,91 @@ public final class Clock extends Thread {
 					wait(); 
 				} catch (InterruptedException e) {}
 			if (!alive) return;
-			long waitTime;
+			statsReset();
 			cycle = 0;
 			startTime = System.nanoTime();
-			try {
-				while(running) {
-					driven.clockPulse();
-					cycle++;
-					if (cycleDuration > 0) {
-						waitTime = startTime + cycle * cycleDuration - System.nanoTime();
-						if (waitTime > 0)
-								sleep(waitTime / 1000000, (int) (waitTime % 1000000));
-						else
-							yield();
-					} else 
-						yield();
-				}
-			} catch (InterruptedException e) {}
+			nextDeadline = startTime;
+			while(running) {
+				driven.clockPulse();
+				cycle++;
+				if (cycleDuration > 0)
+					waitNextCycle();
+				else 
+					yield();
+			}
+		}
+	}
+
+	public double jitterAverage() {		// In milliseconds
+		return statsCycles == 0 ? 0 : (double)statsLatenessSum / statsCycles / 1000000;
+	}
+
+	public double jitterDeviation() {	// In milliseconds
+		if (statsCycles == 0) return 0;
+		double avg = (double)statsLatenessSum / statsCycles;
+		double var = statsLatenessSquaresSum / statsCycles - avg * avg;
+		return var <= 0 ? 0 : Math.sqrt(var) / 1000000;
+	}
+
+	public double jitterMax() {			// In milliseconds
+		return (double)statsLatenessMax / 1000000;
+	}
+
+	public long lateCycles() {
+		return lateCycles;
+	}
+
+	public long resyncs() {
+		return resyncs;
+	}
+
+	public double drift() {				// In milliseconds
+		return (double)drift / 1000000;
+	}
+
+	private void waitNextCycle() {
+		long deadline = nextDeadline += cyclePeriod;
+		long now = System.nanoTime();
+		// Park for the bulk of the wait, leaving a tail to be spun against the OS wake-up latency
+		while (deadline - now > spinTail) {
+			long parkTime = deadline - now - spinTail;
+			LockSupport.parkNanos(parkTime);
+			Thread.interrupted();		// pause() and go() interrupt to wake the loop, the running flag tells what to do
+			if (!running) return;
+			long woke = System.nanoTime();
+			long overslept = woke - now - parkTime;
+			if (overslept >= 0) spinTailAdapt(overslept);
+			now = woke;
+		}
+		while (now < deadline) {
+			if (!running) return;
+			now = System.nanoTime();
+		}
+		long lateness = now - deadline;
+		statsCycles++;
+		statsLatenessSum += lateness;
+		statsLatenessSquaresSum += (double)lateness * lateness;
+		if (lateness > statsLatenessMax) statsLatenessMax = lateness;
+		if (lateness > LATE_TOLERANCE) lateCycles++;
+		// Too far behind (host stalled). Drop the debt instead of bursting pulses to catch up
+		if (lateness > cycleDuration * MAX_LATE_CYCLES) {
+			nextDeadline += lateness;
+			drift += lateness;
+			resyncs++;
 		}
 	}
 
+	private void spinTailAdapt(long overslept) {
+		oversleepAverage += (overslept - oversleepAverage) / 8;
+		long tail = SPIN_TAIL_MIN + oversleepAverage * 2;
+		spinTail = tail > SPIN_TAIL_MAX ? SPIN_TAIL_MAX : tail;
+	}
+
+	private void statsReset() {
+		statsCycles = 0; statsLatenessSum = 0; statsLatenessSquaresSum = 0; statsLatenessMax = 0;
+		lateCycles = 0; resyncs = 0; drift = 0;
+	}
+
 	@Override
 	public String toString() {
 		String res = alive ? (running ? "Running" : "Paused") : "Terminated"; 
@@ -88,6 +164,9 @@ public final class Clock extends Thread {
 			if (cy > 1000000) res = res + " at " + String.format(Locale.ENGLISH, "%.3fMHz", cy / 1000000);
 			else if (cy > 1000)	res = res + " at " + String.format(Locale.ENGLISH, "%.3fKHz", cy / 1000);
 				else res = res + " at " + String.format(Locale.ENGLISH, "%.3fHz", cy);
+			if (cycleDuration > 0)
+				res = res + String.format(Locale.ENGLISH, ", jitter %.3f/%.3f/%.3fms, late %d, resyncs %d, drift %.1fms",
+					jitterAverage(), jitterDeviation(), jitterMax(), lateCycles, resyncs, drift());
 		}
 		return res;
 	}
@@ -106,5 +185,23 @@ public final class Clock extends Thread {
 	private long cycleDuration;   		// In nanoseconds. -1 = Maximum Speed, 0 = never starts
 	private long cycle = 0;
 	private long startTime = 0;
+	private long nextDeadline = 0;
+	private long cyclePeriod;			// In nanoseconds, cycleDuration adjusted by rate
+	private double rate = 1;
+
+	private long spinTail = SPIN_TAIL_MIN;		// In nanoseconds
+	private long oversleepAverage = 0;
+	private long statsCycles = 0;
+	private long statsLatenessSum = 0;
+	private double statsLatenessSquaresSum = 0;
+	private long statsLatenessMax = 0;
+	private long lateCycles = 0;
+	private long resyncs = 0;
+	private long drift = 0;
+
+	private static final long SPIN_TAIL_MIN = 50000;
+	private static final long SPIN_TAIL_MAX = Parameters.CLOCK_SPIN_TAIL_MAX * 1000L;
+	private static final long MAX_LATE_CYCLES = Parameters.CLOCK_MAX_LATE_CYCLES;
+	private static final long LATE_TOLERANCE = 500000;
 
 }
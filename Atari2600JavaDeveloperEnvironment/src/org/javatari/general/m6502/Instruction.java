@@ -14,6 +14,14 @@ public abstract class Instruction implements Serializable, Cloneable {
 
 	public abstract void execute();
 
+	// Operand state decoded by fetch() and used by execute(), packed for compact snapshots
+	public int operandState() {
+		return 0;
+	}
+
+	public void operandState(int state) {
+	}
+
 	@Override
 	protected Instruction clone() {
 		try { 
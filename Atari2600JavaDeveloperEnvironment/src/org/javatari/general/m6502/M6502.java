@@ -25,6 +25,7 @@ import static org.javatari.general.m6502.StatusBit.bOVERFLOW;
 import static org.javatari.general.m6502.StatusBit.bZERO;
 
 import java.io.Serializable;
+import java.nio.ByteBuffer;
 
 import org.javatari.general.board.BUS16Bits;
 import org.javatari.general.board.Clock;
@@ -113,7 +114,8 @@ public final class M6502 implements ClockDriven {
 		if (!RDY) return;					// CPU is halted
 		if (remainingCycles-- > 0) return;		// CPU is still "executing" remaining instruction cycles
 		// if (trace) showDebug(">>> TRACE");
-		currentInstruction = instructions[toUnsignedByte(bus.readByte(PC++))];	// Reads the instruction to be executed
+		currentOpcode = toUnsignedByte(bus.readByte(PC++));						// Reads the instruction to be executed
+		currentInstruction = instructions[currentOpcode];
 		remainingCycles = currentInstruction.fetch() - 1;						// One cycle was just executed already!
 	}
 
@@ -271,6 +273,7 @@ public final class M6502 implements ClockDriven {
 		state.trace = trace; state.debug = debug;
 		state.pageCrossed = pageCrossed;
 		if (currentInstruction != null) state.currentInstruction = currentInstruction.clone();
+		state.currentOpcode = currentOpcode;
 		state.remainingCycles = remainingCycles;
 		return state;
 	}
@@ -284,9 +287,40 @@ public final class M6502 implements ClockDriven {
 		pageCrossed = state.pageCrossed;
 		currentInstruction = state.currentInstruction;
 		if (currentInstruction != null)	currentInstruction.cpu = this;
+		currentOpcode = state.currentOpcode;
 		remainingCycles = state.remainingCycles;
 	}
 
+	// Compact fixed layout binary state. The current Instruction is kept as its opcode and operand state
+	public void saveState(ByteBuffer out) {
+		out.putInt(PC);
+		out.put(A); out.put(X); out.put(Y); out.put(SP);
+		out.put((byte) ((CARRY ? 0x01 : 0) | (ZERO ? 0x02 : 0) | (OVERFLOW ? 0x04 : 0) | (NEGATIVE ? 0x08 : 0)
+			| (DECIMAL_MODE ? 0x10 : 0) | (INTERRUPT_DISABLE ? 0x20 : 0) | (BREAK_COMMAND ? 0x40 : 0) | (RDY ? 0x80 : 0)));
+		out.put(pageCrossed ? (byte) 1 : 0);
+		out.put((byte) remainingCycles);
+		out.putShort((short) (currentInstruction != null ? currentOpcode : -1));
+		out.putInt(currentInstruction != null ? currentInstruction.operandState() : 0);
+	}
+
+	public void loadState(ByteBuffer in) {
+		PC = in.getInt();
+		A = in.get(); X = in.get(); Y = in.get(); SP = in.get();
+		int flags = in.get();
+		CARRY = (flags & 0x01) != 0; ZERO = (flags & 0x02) != 0; OVERFLOW = (flags & 0x04) != 0; NEGATIVE = (flags & 0x08) != 0;
+		DECIMAL_MODE = (flags & 0x10) != 0; INTERRUPT_DISABLE = (flags & 0x20) != 0; BREAK_COMMAND = (flags & 0x40) != 0; RDY = (flags & 0x80) != 0;
+		pageCrossed = in.get() != 0;
+		remainingCycles = in.get();
+		int opcode = in.getShort();
+		int operand = in.getInt();
+		if (opcode >= 0) {
+			currentOpcode = opcode;
+			currentInstruction = instructions[opcode];
+			currentInstruction.operandState(operand);
+		} else
+			currentInstruction = null;
+	}
+
 
 	// Public real 6502 registers and memory, for instructions and general access
 
@@ -302,8 +336,10 @@ public final class M6502 implements ClockDriven {
 	public boolean trace = false;
 	public boolean debug = false;
 	public boolean pageCrossed = false;
+	public boolean jammed = false;			// Set by KIL opcodes, which would halt a real processor. Only cleared by the user
 	private int remainingCycles = -1;
 	private Instruction currentInstruction;
+	private int currentOpcode;
 	
 
 	// Instructions map. # = Undocumented Instruction
@@ -596,9 +632,10 @@ public final class M6502 implements ClockDriven {
 		boolean debug;
 		boolean pageCrossed;
 		Instruction currentInstruction;
+		int currentOpcode;
 		int remainingCycles;
 
-		public static final long serialVersionUID = 2L;
+		public static final long serialVersionUID = 3L;		// currentOpcode added
 	}
 
 }
@@ -45,6 +45,16 @@ public final class ASL extends Instruction {
 		}
 	}
 
+	@Override
+	public int operandState() {
+		return ea;
+	}
+
+	@Override
+	public void operandState(int state) {
+		ea = state;
+	}
+
 	private final int type;
 	
 	private int ea;
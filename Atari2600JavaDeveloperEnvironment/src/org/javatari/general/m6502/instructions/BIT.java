@@ -28,6 +28,16 @@ public final class BIT extends Instruction {
 		cpu.NEGATIVE = (val & 0x80) != 0;		// value of bit 7 from memory
 	}
 
+	@Override
+	public int operandState() {
+		return ea;
+	}
+
+	@Override
+	public void operandState(int state) {
+		ea = state;
+	}
+
 	private final int type;
 	
 	private int ea;
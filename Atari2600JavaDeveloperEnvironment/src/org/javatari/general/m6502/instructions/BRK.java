@@ -29,6 +29,16 @@ public final class BRK extends Instruction {
 		cpu.PC = cpu.memoryReadWord(M6502.IRQ_HANDLER_ADDRESS);
 	}
 
+	@Override
+	public int operandState() {
+		return par;
+	}
+
+	@Override
+	public void operandState(int state) {
+		par = state;
+	}
+
 	private int par;
 	
 
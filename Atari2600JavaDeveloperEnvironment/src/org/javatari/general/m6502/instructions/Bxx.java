@@ -36,6 +36,16 @@ public final class Bxx extends Instruction {
 		if (branch) cpu.PC = newPC;	
 	}
 
+	@Override
+	public int operandState() {
+		return (newPC << 1) | (branch ? 1 : 0);
+	}
+
+	@Override
+	public void operandState(int state) {
+		newPC = state >> 1; branch = (state & 1) != 0;
+	}
+
 	private final int bit;
 	private final boolean cond;
 	
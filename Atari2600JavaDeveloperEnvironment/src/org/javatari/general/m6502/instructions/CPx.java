@@ -41,6 +41,16 @@ public final class CPx extends Instruction {
 		cpu.NEGATIVE = ((byte)(uR - uVal)) < 0;
 	}
 
+	@Override
+	public int operandState() {
+		return ea;
+	}
+
+	@Override
+	public void operandState(int state) {
+		ea = state;
+	}
+
 	private final int reg;
 	private final int type;
 	
@@ -34,6 +34,16 @@ public final class EOR extends Instruction {
 		cpu.NEGATIVE = val < 0;
 	}
 
+	@Override
+	public int operandState() {
+		return ea;
+	}
+
+	@Override
+	public void operandState(int state) {
+		ea = state;
+	}
+
 	private final int type;
 
 	private int ea;
@@ -30,6 +30,16 @@ public final class INC extends Instruction {
 		cpu.bus.writeByte(ea, val);
 	}
 
+	@Override
+	public int operandState() {
+		return ea;
+	}
+
+	@Override
+	public void operandState(int state) {
+		ea = state;
+	}
+
 	private final int type;
 	
 	private int ea;
@@ -25,6 +25,16 @@ public final class JMP extends Instruction {
 		cpu.PC = newPC; 
 	}
 
+	@Override
+	public int operandState() {
+		return newPC;
+	}
+
+	@Override
+	public void operandState(int state) {
+		newPC = state;
+	}
+
 	private final int type;
 
 	private int newPC;
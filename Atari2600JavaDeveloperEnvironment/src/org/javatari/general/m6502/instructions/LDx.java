@@ -40,6 +40,16 @@ public final class LDx extends Instruction {
 		cpu.NEGATIVE = val < 0;
 	}
 
+	@Override
+	public int operandState() {
+		return ea;
+	}
+
+	@Override
+	public void operandState(int state) {
+		ea = state;
+	}
+
 	private final int reg;
 	private final int type;
 	
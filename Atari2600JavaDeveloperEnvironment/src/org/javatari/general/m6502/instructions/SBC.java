@@ -58,6 +58,16 @@ public final class SBC extends Instruction {
 		cpu.A = (byte) M6502.toUnsignedByte(uAux);
 	}
 
+	@Override
+	public int operandState() {
+		return ea;
+	}
+
+	@Override
+	public void operandState(int state) {
+		ea = state;
+	}
+
 	private final int type;
 	
 	private int ea;
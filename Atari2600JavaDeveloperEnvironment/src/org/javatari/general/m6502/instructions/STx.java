@@ -39,6 +39,16 @@ public final class STx extends Instruction {
 		else throw new IllegalStateException("STx Invalid Register: " + reg);
 	}
 
+	@Override
+	public int operandState() {
+		return ea;
+	}
+
+	@Override
+	public void operandState(int state) {
+		ea = state;
+	}
+
 	private final int reg;
 	private final int type;
 	
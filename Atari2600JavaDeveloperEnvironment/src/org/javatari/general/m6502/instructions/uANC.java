@@ -24,6 +24,16 @@ public final class uANC extends Instruction {
 		cpu.CARRY = cpu.NEGATIVE = val < 0;
 	}
 
+	@Override
+	public int operandState() {
+		return ea;
+	}
+
+	@Override
+	public void operandState(int state) {
+		ea = state;
+	}
+
 	private int ea;
 
 	
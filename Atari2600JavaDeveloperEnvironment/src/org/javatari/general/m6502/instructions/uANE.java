@@ -23,6 +23,16 @@ public final class uANE extends Instruction {
 		cpu.debug(">>> Undocumented opcode ANE (XAA)");
 	}
 
+	@Override
+	public int operandState() {
+		return ea;
+	}
+
+	@Override
+	public void operandState(int state) {
+		ea = state;
+	}
+
 	private int ea;
 	
 
@@ -38,6 +38,16 @@ public final class uARR extends Instruction {
 		else if (comp == 0x40) 	{ cpu.CARRY = true; cpu.OVERFLOW = true; }
 	}
 
+	@Override
+	public int operandState() {
+		return ea;
+	}
+
+	@Override
+	public void operandState(int state) {
+		ea = state;
+	}
+
 	private int ea;
 	
 
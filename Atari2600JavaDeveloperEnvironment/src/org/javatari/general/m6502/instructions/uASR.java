@@ -26,6 +26,16 @@ public final class uASR extends Instruction {
 		cpu.NEGATIVE = false;
 	}
 
+	@Override
+	public int operandState() {
+		return ea;
+	}
+
+	@Override
+	public void operandState(int state) {
+		ea = state;
+	}
+
 	private int ea;
 	
 
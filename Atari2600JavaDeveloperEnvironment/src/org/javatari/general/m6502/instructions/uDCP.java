@@ -36,6 +36,16 @@ public final class uDCP extends Instruction {
 		cpu.NEGATIVE = ((byte)(uA - uVal)) < 0;
 	}
 
+	@Override
+	public int operandState() {
+		return ea;
+	}
+
+	@Override
+	public void operandState(int state) {
+		ea = state;
+	}
+
 	private final int type;
 	
 	private int ea;
@@ -19,6 +19,7 @@ public final class uKIL extends Instruction {
 
 	@Override
 	public void execute() {
+		cpu.jammed = true;
 		cpu.debug(">>> Undocumented opcode KIL (HLT)");
 	}
 
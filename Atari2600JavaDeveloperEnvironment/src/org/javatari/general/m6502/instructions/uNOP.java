@@ -29,6 +29,16 @@ public final class uNOP extends Instruction {
 		// No effects besides fetching and reading memory
 	}
 
+	@Override
+	public int operandState() {
+		return ea;
+	}
+
+	@Override
+	public void operandState(int state) {
+		ea = state;
+	}
+
 	private final int type;
 	
 	private int ea;
@@ -29,6 +29,16 @@ public final class uSBX extends Instruction {
 		cpu.NEGATIVE = newX < 0;
 	}
 
+	@Override
+	public int operandState() {
+		return ea;
+	}
+
+	@Override
+	public void operandState(int state) {
+		ea = state;
+	}
+
 	private int ea;
 	
 
@@ -26,6 +26,16 @@ public final class uSHA extends Instruction {
 		cpu.bus.writeByte(ea, val);
 	}
 
+	@Override
+	public int operandState() {
+		return ea;
+	}
+
+	@Override
+	public void operandState(int state) {
+		ea = state;
+	}
+
 	private final int type;
 	
 	private int ea;
@@ -22,6 +22,16 @@ public final class uSHX extends Instruction {
 		cpu.bus.writeByte(ea, val);
 	}
 
+	@Override
+	public int operandState() {
+		return ea;
+	}
+
+	@Override
+	public void operandState(int state) {
+		ea = state;
+	}
+
 	private int ea;
 
 	
@@ -0,0 +1,155 @@
+// Copyright 2011-2012 Paulo Augusto Peccin. See licence.txt distributed with this file.
+
+package org.javatari.main;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+import org.javatari.atari.controls.InputLog;
+import org.javatari.general.av.audio.WavAudioWriter;
+import org.javatari.parameters.Parameters;
+import org.javatari.pc.cartridge.ROMLoader;
+import org.javatari.pc.headless.HeadlessBatch;
+import org.javatari.pc.headless.HeadlessConsole;
+import org.javatari.pc.headless.StateExplorer;
+
+
+public final class Headless {
+
+  // Runs Cartridges with no Screen, Speaker or Clock pacing
+  // A ROM file is run in one Console per Thread, reporting the speed achieved
+  // A directory has all its ROM files run in a pool of Threads, reporting results per ROM
+  // A ROM file with an Input Log replays the log at full speed, verifying each frame
+  // Audio is hashed with no sound device, and captured to a WAV file for the first Console or the replay if asked
+  // A ROM file with Explore States explores the states reachable with the joystick, reporting jams and timing faults
+  public static void main(String[] args) throws Exception {
+
+    // Load Parameters from properties file and process arguments
+    Parameters.init(args);
+    if (Parameters.mainArg == null) {
+      System.out.println("Usage: Headless <rom file or directory> [-HEADLESS_FRAMES=n] [-HEADLESS_THREADS=n] [-HEADLESS_SEED=n] [-HEADLESS_INPUT_LOG=file] [-HEADLESS_EXPLORE_STATES=n] [-HEADLESS_EXPLORE_FRAMES=n] [-HEADLESS_AUDIO_CAPTURE=file]");
+      return;
+    }
+    File arg = new File(Parameters.mainArg);
+    int threads = Parameters.HEADLESS_THREADS > 0 ? Parameters.HEADLESS_THREADS : Runtime.getRuntime().availableProcessors();
+    if (arg.isDirectory()) batch(arg, threads);
+    else if (!Parameters.HEADLESS_INPUT_LOG.isEmpty()) replay(arg, new File(Parameters.HEADLESS_INPUT_LOG));
+    else if (Parameters.HEADLESS_EXPLORE_STATES > 0) explore(arg, threads);
+    else benchmark(arg, threads);
+
+  }
+
+  private static void benchmark(File rom, int threads) throws Exception {
+    final int frames = Parameters.HEADLESS_FRAMES;
+
+    // Build and power on all Consoles before starting the clock
+    final HeadlessConsole[] consoles = new HeadlessConsole[threads];
+    for (int i = 0; i < threads; i++) {
+      consoles[i] = new HeadlessConsole();
+      consoles[i].randomizer(new Random(Parameters.HEADLESS_SEED));
+      consoles[i].loadCartridge(rom);
+      consoles[i].powerOn();
+    }
+    audioCaptureStart(consoles[0]);
+
+    Thread[] runners = new Thread[threads];
+    for (int i = 0; i < threads; i++) {
+      final HeadlessConsole console = consoles[i];
+      runners[i] = new Thread("Headless Console " + i) { public void run() {
+        console.runFrames(frames);
+      }};
+    }
+    long start = System.nanoTime();
+    for (Thread runner : runners) runner.start();
+    for (Thread runner : runners) runner.join();
+    double elapsed = (System.nanoTime() - start) / 1000000000d;
+    audioCaptureStop(consoles[0]);
+
+    for (int i = 0; i < threads; i++)
+      System.out.println(String.format(Locale.ENGLISH, "Console %d: %d frames, %s, last frame %d lines, hash %016x, audio %016x",
+        i, consoles[i].videoMonitor().frames(), consoles[i].videoStandard(),
+        consoles[i].videoMonitor().frameLines(), consoles[i].videoMonitor().frameHash(), consoles[i].audioMonitor().audioHash()));
+    if (consoles[0].runAhead() > 0) System.out.println(consoles[0].runAheadStats());
+    double fps = (double) frames * threads / elapsed;
+    System.out.println(String.format(Locale.ENGLISH, "%d frames in %.3fs: %.1f fps total, %.1f fps per thread, %.1fx real time per thread",
+      frames * threads, elapsed, fps, fps / threads, fps / threads / consoles[0].videoStandard().fps));
+  }
+
+  private static void replay(File rom, File logFile) throws Exception {
+    InputLog log;
+    InputStream stream = new BufferedInputStream(new FileInputStream(logFile));
+    try {
+      log = InputLog.readFrom(stream);
+    } finally {
+      stream.close();
+    }
+
+    HeadlessConsole console = new HeadlessConsole();
+    console.loadCartridge(rom);
+    console.inputLogReplay(log);
+    audioCaptureStart(console);
+    long start = System.nanoTime();
+    while (console.inputLogReplaying()) console.stepFrame();
+    double elapsed = (System.nanoTime() - start) / 1000000000d;
+    audioCaptureStop(console);
+
+    int divergence = console.inputLogDivergence();
+    System.out.println(String.format(Locale.ENGLISH, "%d frames replayed in %.3fs: %.1f fps, %s, audio %016x",
+      log.frames(), elapsed, log.frames() / elapsed, divergence < 0 ? "all frames verified" : "diverged at frame " + divergence,
+      console.audioMonitor().audioHash()));
+  }
+
+  private static void audioCaptureStart(HeadlessConsole console) throws IOException {
+    if (Parameters.HEADLESS_AUDIO_CAPTURE.isEmpty()) return;
+    console.audioCapture(new WavAudioWriter(new File(Parameters.HEADLESS_AUDIO_CAPTURE), Parameters.TIA_AUDIO_SAMPLE_RATE));
+  }
+
+  private static void audioCaptureStop(HeadlessConsole console) throws IOException {
+    WavAudioWriter capture = console.audioCapture(null);
+    if (capture == null) return;
+    capture.close();
+    System.out.println("Audio captured: " + capture.samples() + " samples to " + capture.file()
+      + (capture.droppedSamples() > 0 ? ", " + capture.droppedSamples() + " samples dropped" : ""));
+  }
+
+  private static void explore(File rom, int threads) throws Exception {
+    StateExplorer explorer = new StateExplorer(rom, threads, Parameters.HEADLESS_EXPLORE_FRAMES, Parameters.HEADLESS_SEED);
+    StateExplorer.Report report = explorer.explore(Parameters.HEADLESS_EXPLORE_STATES);
+    explorer.shutdown();
+    System.out.println(report);
+  }
+
+  private static void batch(File dir, int threads) throws Exception {
+    List<File> roms = new ArrayList<File>();
+    File[] files = dir.listFiles();
+    Arrays.sort(files);
+    for (File file : files)
+      for (String ext : ROMLoader.VALID_FILE_EXTENSIONS)
+        if (file.isFile() && !ext.equals("zip") && file.getName().toLowerCase().endsWith("." + ext)) roms.add(file);
+
+    HeadlessBatch batch = new HeadlessBatch(threads);
+    long start = System.nanoTime();
+    List<HeadlessBatch.Result> results = batch.run(roms, Parameters.HEADLESS_FRAMES, Parameters.HEADLESS_SEED);
+    double elapsed = (System.nanoTime() - start) / 1000000000d;
+    batch.shutdown();
+
+    long frames = 0;
+    int crashes = 0;
+    for (HeadlessBatch.Result result : results) {
+      System.out.println(result);
+      frames += result.frames;
+      if (result.crashed()) crashes++;
+    }
+    System.out.println(String.format(Locale.ENGLISH, "%d ROMs, %d crashed, %d frames in %.3fs with %d threads: %.1f fps total",
+      results.size(), crashes, frames, elapsed, threads, frames / elapsed));
+  }
+
+}
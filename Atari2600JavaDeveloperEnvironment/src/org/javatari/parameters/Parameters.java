@@ -306,6 +306,43 @@ public final class Parameters {
       if (val != null) BUS_DATA_RETENTION = Boolean.valueOf(val);
       val = props.getProperty("CONSOLE_FAST_SPEED_FACTOR");
       if (val != null) CONSOLE_FAST_SPEED_FACTOR = Integer.valueOf(val);
+      val = props.getProperty("CONSOLE_AUDIO_MASTER_CLOCK");
+      if (val != null) CONSOLE_AUDIO_MASTER_CLOCK = Boolean.valueOf(val);
+      val = props.getProperty("CONSOLE_AUDIO_MASTER_MAX_RATE_DEVIATION");
+      if (val != null) CONSOLE_AUDIO_MASTER_MAX_RATE_DEVIATION = Double.valueOf(val);
+      val = props.getProperty("CLOCK_SPIN_TAIL_MAX");
+      if (val != null) CLOCK_SPIN_TAIL_MAX = Integer.valueOf(val);
+      val = props.getProperty("CLOCK_MAX_LATE_CYCLES");
+      if (val != null) CLOCK_MAX_LATE_CYCLES = Integer.valueOf(val);
+
+      val = props.getProperty("CONSOLE_RUN_AHEAD_FRAMES");
+      if (val != null) CONSOLE_RUN_AHEAD_FRAMES = Integer.valueOf(val);
+      val = props.getProperty("CONSOLE_REWIND_MEMORY");
+      if (val != null) CONSOLE_REWIND_MEMORY = Integer.valueOf(val);
+      val = props.getProperty("CONSOLE_REWIND_MAX_FRAMES");
+      if (val != null) CONSOLE_REWIND_MAX_FRAMES = Integer.valueOf(val);
+      val = props.getProperty("CONSOLE_REWIND_KEYFRAME_INTERVAL");
+      if (val != null) CONSOLE_REWIND_KEYFRAME_INTERVAL = Integer.valueOf(val);
+      val = props.getProperty("CONSOLE_INPUT_LOG");
+      if (val != null) CONSOLE_INPUT_LOG = val.trim();
+      val = props.getProperty("CONSOLE_AUDIO_CAPTURE");
+      if (val != null) CONSOLE_AUDIO_CAPTURE = val.trim();
+      val = props.getProperty("CONSOLE_INPUT_LOG_SEED");
+      if (val != null) CONSOLE_INPUT_LOG_SEED = Long.valueOf(val);
+      val = props.getProperty("HEADLESS_FRAMES");
+      if (val != null) HEADLESS_FRAMES = Integer.valueOf(val);
+      val = props.getProperty("HEADLESS_THREADS");
+      if (val != null) HEADLESS_THREADS = Integer.valueOf(val);
+      val = props.getProperty("HEADLESS_SEED");
+      if (val != null) HEADLESS_SEED = Long.valueOf(val);
+      val = props.getProperty("HEADLESS_INPUT_LOG");
+      if (val != null) HEADLESS_INPUT_LOG = val.trim();
+      val = props.getProperty("HEADLESS_EXPLORE_STATES");
+      if (val != null) HEADLESS_EXPLORE_STATES = Integer.valueOf(val);
+      val = props.getProperty("HEADLESS_EXPLORE_FRAMES");
+      if (val != null) HEADLESS_EXPLORE_FRAMES = Integer.valueOf(val);
+      val = props.getProperty("HEADLESS_AUDIO_CAPTURE");
+      if (val != null) HEADLESS_AUDIO_CAPTURE = val.trim();
 
       val = props.getProperty("SCREEN_DEFAULT_FPS");
       if (val != null) SCREEN_DEFAULT_FPS = Double.valueOf(val);
@@ -361,15 +398,23 @@ public final class Parameters {
       if (val != null) SCREEN_EMBEDDED_POPUP = Boolean.valueOf(val);
       val = props.getProperty("SCREEN_CARTRIDGE_CHANGE");
       if (val != null) SCREEN_CARTRIDGE_CHANGE = Boolean.valueOf(val);
+      val = props.getProperty("SCREEN_SKIP_UNCHANGED_FRAMES");
+      if (val != null) SCREEN_SKIP_UNCHANGED_FRAMES = Boolean.valueOf(val);
 
       val = props.getProperty("SPEAKER_DEFAULT_FPS");
       if (val != null) SPEAKER_DEFAULT_FPS = Double.valueOf(val);
       val = props.getProperty("SPEAKER_INPUT_BUFFER_SIZE");
       if (val != null) SPEAKER_INPUT_BUFFER_SIZE = Integer.valueOf(val);
+      val = props.getProperty("SPEAKER_OUTPUT_SAMPLE_RATE");
+      if (val != null) SPEAKER_OUTPUT_SAMPLE_RATE = Integer.valueOf(val);
       val = props.getProperty("SPEAKER_OUTPUT_BUFFER_SIZE");
       if (val != null) SPEAKER_OUTPUT_BUFFER_SIZE = Integer.valueOf(val);
-      val = props.getProperty("SPEAKER_OUTPUT_BUFFER_FULL_SLEEP_TIME");
-      if (val != null) SPEAKER_OUTPUT_BUFFER_FULL_SLEEP_TIME = Integer.valueOf(val);
+      val = props.getProperty("SPEAKER_TARGET_LATENCY");
+      if (val != null) SPEAKER_TARGET_LATENCY = Integer.valueOf(val);
+      val = props.getProperty("SPEAKER_MAX_LATENCY");
+      if (val != null) SPEAKER_MAX_LATENCY = Integer.valueOf(val);
+      val = props.getProperty("SPEAKER_MAX_RATE_DEVIATION");
+      if (val != null) SPEAKER_MAX_RATE_DEVIATION = Double.valueOf(val);
       val = props.getProperty("SPEAKER_NO_DATA_SLEEP_TIME");
       if (val != null) SPEAKER_NO_DATA_SLEEP_TIME = Integer.valueOf(val);
       val = props.getProperty("SPEAKER_ADDED_THREAD_PRIORITY");
@@ -447,6 +492,26 @@ public final class Parameters {
   public static float RAM_FRY_VARIANCE = 0.3f;
   public static boolean BUS_DATA_RETENTION = true;
   public static int CONSOLE_FAST_SPEED_FACTOR = 15;
+  public static boolean CONSOLE_AUDIO_MASTER_CLOCK = false;        // Console Clock paced by the Speaker buffer, also synching Screen and Speaker
+  public static double CONSOLE_AUDIO_MASTER_MAX_RATE_DEVIATION = 0.005;
+  public static int CLOCK_SPIN_TAIL_MAX = 1000;              // In microseconds
+  public static int CLOCK_MAX_LATE_CYCLES = 3;              // Late more than this and the Clock resyncs instead of catching up
+
+  public static int CONSOLE_RUN_AHEAD_FRAMES = 0;           // Frames emulated ahead of the one displayed, to cut input lag. Needs that many times the speed
+  public static int CONSOLE_REWIND_MEMORY = 0;              // In KB. 0 = No rewind history
+  public static int CONSOLE_REWIND_MAX_FRAMES = 36000;
+  public static int CONSOLE_REWIND_KEYFRAME_INTERVAL = 60;
+  public static String CONSOLE_INPUT_LOG = "";              // Records a deterministic run to this file, from power on to power off
+  public static long CONSOLE_INPUT_LOG_SEED = 0;
+  public static String CONSOLE_AUDIO_CAPTURE = "";          // Captures the audio to this WAV file, from power on to power off
+
+  public static int HEADLESS_FRAMES = 3600;
+  public static int HEADLESS_THREADS = 0;                  // 0 = One per available processor
+  public static long HEADLESS_SEED = 0;                    // Randomness of each headless Console, for reproducible runs
+  public static String HEADLESS_INPUT_LOG = "";             // Input Log to replay instead of benchmarking
+  public static int HEADLESS_EXPLORE_STATES = 0;           // States to find exploring inputs instead of benchmarking. 0 = off
+  public static int HEADLESS_EXPLORE_FRAMES = 8;           // Frames each input is held while exploring
+  public static String HEADLESS_AUDIO_CAPTURE = "";         // WAV file to capture the audio of the first Console or the replay
 
   public static double SCREEN_DEFAULT_FPS = -1;            // 0 = External Synch, -1 = Auto FPS (On Demand)
   public static int SCREEN_DEFAULT_ORIGIN_X = 68;
@@ -475,11 +540,15 @@ public final class Parameters {
   public static int SCREEN_USE_FSEM = -1;
   public static boolean SCREEN_EMBEDDED_POPUP = true;
   public static boolean SCREEN_CARTRIDGE_CHANGE = true;
+  public static boolean SCREEN_SKIP_UNCHANGED_FRAMES = true;
 
   public static double SPEAKER_DEFAULT_FPS = -1;            // 0 = External Synch, -1 = Auto FPS (On Demand)
   public static int SPEAKER_INPUT_BUFFER_SIZE = 1536;        // In frames (samples)
   public static int SPEAKER_OUTPUT_BUFFER_SIZE = 1024;        // In frames (samples)
-  public static int SPEAKER_OUTPUT_BUFFER_FULL_SLEEP_TIME = 5;    // In milliseconds
+  public static int SPEAKER_OUTPUT_SAMPLE_RATE = 48000;    // Device rate to resample to. 0 = TIA rate, no resampling
+  public static int SPEAKER_TARGET_LATENCY = 12;          // In milliseconds queued before each frame, grows on underruns. 0 = no rate control
+  public static int SPEAKER_MAX_LATENCY = 60;             // In milliseconds
+  public static double SPEAKER_MAX_RATE_DEVIATION = 0.005;
   public static int SPEAKER_NO_DATA_SLEEP_TIME = 10;        // In milliseconds
   public static int SPEAKER_ADDED_THREAD_PRIORITY = 0;
 
@@ -0,0 +1,69 @@
+// Copyright 2011-2012 Paulo Augusto Peccin. See licence.txt distributed with this file.
+
+package org.javatari.pc.headless;
+
+import org.javatari.general.av.audio.AudioMonitor;
+import org.javatari.general.av.audio.AudioSignal;
+
+/** AudioMonitor with no output. Only keeps the last frame of samples for inspection and a hash of all samples so far */
+public final class HeadlessAudioMonitor implements AudioMonitor {
+
+	public void connect(AudioSignal signal) {
+		signal.connectMonitor(this);
+	}
+
+	// Samples of the last frame, valid up to frameSamples()
+	public short[] frame() {
+		return frame;
+	}
+
+	public int frameSamples() {
+		return frameSamples;
+	}
+
+	public long samples() {
+		return samples;
+	}
+
+	// FNV-1a of all samples since the last reset, comparable across runs with no sound device
+	public long audioHash() {
+		return audioHash;
+	}
+
+	@Override
+	public void nextSamples(short[] buffer, int quant) {
+		if (buffer == null) {		// Signal is off
+			frameSamples = 0;
+			return;
+		}
+		if (quant > frame.length) quant = frame.length;
+		System.arraycopy(buffer, 0, frame, 0, quant);
+		frameSamples = quant;
+		samples += quant;
+		long hash = audioHash;
+		for (int i = 0; i < quant; i++)
+			hash = (hash ^ buffer[i]) * FNV_PRIME;
+		audioHash = hash;
+	}
+
+	@Override
+	public void synchOutput() {
+		// No output
+	}
+
+	public void reset() {
+		frameSamples = 0;
+		samples = 0;
+		audioHash = FNV_OFFSET;
+	}
+
+
+	private final short[] frame = new short[2048];		// Same as the generator frame buffer
+	private int frameSamples = 0;
+	private long samples = 0;
+	private long audioHash = FNV_OFFSET;
+
+	private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+	private static final long FNV_PRIME = 0x100000001b3L;
+
+}
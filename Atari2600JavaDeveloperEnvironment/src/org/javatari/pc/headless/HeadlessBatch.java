@@ -0,0 +1,124 @@
+// Copyright 2011-2012 Paulo Augusto Peccin. See licence.txt distributed with this file.
+
+package org.javatari.pc.headless;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+/** Runs many ROMs in independent HeadlessConsoles over a fixed pool of worker Threads */
+public final class HeadlessBatch {
+
+	public HeadlessBatch(int threads) {
+		this.threads = threads;
+		workers = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+			private int count = 0;
+			@Override
+			public synchronized Thread newThread(Runnable r) {
+				Thread thread = new Thread(r, "Headless Worker " + count++);
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+	}
+
+	// Results come in the same order as the ROMs. Each Console gets its own Random with the same seed, so runs are reproducible
+	public List<Result> run(List<File> roms, final int frames, final long seed) throws InterruptedException {
+		List<Future<Result>> futures = new ArrayList<Future<Result>>(roms.size());
+		for (final File rom : roms)
+			futures.add(workers.submit(new Callable<Result>() {
+				@Override
+				public Result call() {
+					return runROM(rom, frames, seed);
+				}
+			}));
+		List<Result> results = new ArrayList<Result>(roms.size());
+		for (Future<Result> future : futures)
+			try {
+				results.add(future.get());
+			} catch (ExecutionException e) {
+				throw new IllegalStateException(e.getCause());		// runROM catches everything, should not happen
+			}
+		return results;
+	}
+
+	public int threads() {
+		return threads;
+	}
+
+	public void shutdown() {
+		workers.shutdownNow();
+	}
+
+	private static Result runROM(File rom, int frames, long seed) {
+		Result result = new Result(rom);
+		long start = System.nanoTime();
+		try {
+			HeadlessConsole console = new HeadlessConsole();
+			console.randomizer(new Random(seed));
+			console.loadCartridge(rom);
+			console.powerOn();
+			HeadlessVideoMonitor video = console.videoMonitor();
+			HeadlessAudioMonitor audio = console.audioMonitor();
+			for (int f = 0; f < frames; f++) {
+				console.stepFrame();
+				result.frames++;
+				result.videoHash = (result.videoHash ^ video.frameHash()) * FNV_PRIME;
+			}
+			result.audioHash = audio.audioHash();
+			result.lines = video.frameLines();
+			result.videoStandard = console.videoStandard().toString();
+			byte[] ram = new byte[128];
+			console.ram().copyBytes(ram, 0);
+			for (byte b : ram)
+				result.ramHash = (result.ramHash ^ b) * FNV_PRIME;
+			console.powerOff();
+		} catch (Throwable e) {
+			result.error = e;
+		}
+		result.nanos = System.nanoTime() - start;
+		return result;
+	}
+
+
+	private final int threads;
+	private final ExecutorService workers;
+
+	private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+	private static final long FNV_PRIME = 0x100000001b3L;
+
+
+	public static final class Result {
+		Result(File rom) {
+			this.rom = rom;
+		}
+		public boolean crashed() {
+			return error != null;
+		}
+		@Override
+		public String toString() {
+			String res = String.format(Locale.ENGLISH, "%s: %d frames in %.3fs", rom.getName(), frames, nanos / 1000000000d);
+			if (error != null) return res + ", CRASHED: " + error;
+			return res + String.format(Locale.ENGLISH, ", %s %d lines, video %016x, audio %016x, ram %016x",
+				videoStandard, lines, videoHash, audioHash, ramHash);
+		}
+		public final File rom;
+		public int frames = 0;
+		public int lines = 0;
+		public String videoStandard;
+		public long videoHash = FNV_OFFSET;
+		public long audioHash = FNV_OFFSET;
+		public long ramHash = FNV_OFFSET;
+		public long nanos = 0;
+		public Throwable error;
+	}
+
+}
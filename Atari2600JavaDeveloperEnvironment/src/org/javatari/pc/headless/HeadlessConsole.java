@@ -0,0 +1,117 @@
+// Copyright 2011-2012 Paulo Augusto Peccin. See licence.txt distributed with this file.
+
+package org.javatari.pc.headless;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+import org.javatari.atari.cartridge.Cartridge;
+import org.javatari.atari.cartridge.CartridgeCreator;
+import org.javatari.atari.cartridge.ROM;
+import org.javatari.atari.cartridge.ROMFormatUnsupportedException;
+import org.javatari.atari.console.Console;
+import org.javatari.atari.pia.PIA;
+import org.javatari.atari.pia.RAM;
+import org.javatari.atari.tia.TIA;
+import org.javatari.general.av.audio.AudioMonitorTee;
+import org.javatari.general.av.audio.WavAudioWriter;
+import org.javatari.general.m6502.M6502;
+
+/** Console with no Clock, Screen or Speaker. Frames are run on demand by the caller, as fast as possible */
+public class HeadlessConsole extends Console {
+
+	public HeadlessConsole() {
+		super();
+		videoStandardDetectionInFrames = true;
+		rewindEnabled = false;		// Call rewindEnabled(true) to keep history
+		videoMonitor = new HeadlessVideoMonitor();
+		videoMonitor.connect(videoOutput());
+		audioMonitor = new HeadlessAudioMonitor();
+		audioMonitor.connect(audioOutput());
+	}
+
+	public void loadCartridge(File file) throws IOException, ROMFormatUnsupportedException {
+		Cartridge cartridge = CartridgeCreator.create(new ROM(file.getPath(), Files.readAllBytes(file.toPath())));
+		cartridgeSocket().insert(cartridge, false);
+	}
+
+	public void stepFrame() {
+		if (powerOn) clockPulse();
+	}
+
+	public void runFrames(int frames) {
+		for (int i = 0; i < frames && powerOn; i++)
+			stepFrame();
+	}
+
+	public HeadlessVideoMonitor videoMonitor() {
+		return videoMonitor;
+	}
+
+	public HeadlessAudioMonitor audioMonitor() {
+		return audioMonitor;
+	}
+
+	// Also sends the audio to a WAV capture. null stops it. Returns the capture replaced, for the caller to close
+	public WavAudioWriter audioCapture(WavAudioWriter capture) {
+		if (audioTee == null) {
+			audioTee = new AudioMonitorTee();
+			audioTee.connect(audioOutput());
+			audioMonitor.connect(audioTee);
+		}
+		return audioTee.capture(capture);
+	}
+
+	public RAM ram() {
+		return ram;
+	}
+
+	public TIA tia() {
+		return tia;
+	}
+
+	public PIA pia() {
+		return pia;
+	}
+
+	public M6502 cpu() {
+		return cpu;
+	}
+
+	@Override
+	public void go() {
+		// Ignore, frames are run by the caller
+	}
+
+	@Override
+	public void pause() {
+		// Ignore, frames are run by the caller
+	}
+
+	@Override
+	protected void mainClockCreate() {
+		// Ignore, frames are run by the caller
+	}
+
+	@Override
+	protected void mainClockAdjustToNormal() {
+		// Ignore, frames are run by the caller
+	}
+
+	@Override
+	protected void mainClockAdjustToFast() {
+		// Ignore, frames are run by the caller
+	}
+
+	@Override
+	protected void mainClockDestroy() {
+		// Ignore, frames are run by the caller
+	}
+
+
+	private final HeadlessVideoMonitor videoMonitor;
+	private final HeadlessAudioMonitor audioMonitor;
+	private AudioMonitorTee audioTee;
+
+}
@@ -0,0 +1,216 @@
+// Copyright 2011-2012 Paulo Augusto Peccin. See licence.txt distributed with this file.
+
+package org.javatari.pc.headless;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+import org.javatari.atari.cartridge.ROMFormatUnsupportedException;
+import org.javatari.atari.console.savestate.ConsoleSnapshot;
+import org.javatari.atari.controls.ConsoleControls.Control;
+import org.javatari.atari.controls.ConsoleControlsSocket;
+
+/**
+ * Many HeadlessConsoles running the same ROM, stepped in lockstep with one joystick action per Console.
+ * Observations go into arrays provided by the caller, and steps make no allocations
+ */
+public final class HeadlessVectorEnv {
+
+	// Screen observations are grayscale, downsampled to screenWidth x screenHeight from the usual 160 x 210 visible area
+	public HeadlessVectorEnv(File rom, int instances, int threads, int framesPerStep, int screenWidth, int screenHeight, long seed)
+			throws IOException, ROMFormatUnsupportedException {
+		this.instances = instances;
+		this.framesPerStep = framesPerStep;
+		this.screenSize = screenWidth * screenHeight;
+		consoles = new HeadlessConsole[instances];
+		snapshots = new ConsoleSnapshot[instances];
+		currentActions = new int[instances];
+		for (int i = 0; i < instances; i++) {
+			consoles[i] = new HeadlessConsole();
+			consoles[i].randomizer(new Random(seed + i));
+			consoles[i].loadCartridge(rom);
+			consoles[i].powerOn();
+			// Let the video standard detection and the game startup settle before the first snapshot
+			consoles[i].runFrames(STARTUP_FRAMES);
+			snapshots[i] = consoles[i].newSnapshot();
+			snapshot(i);
+		}
+		screenMap = new int[screenSize];
+		for (int y = 0; y < screenHeight; y++)
+			for (int x = 0; x < screenWidth; x++)
+				screenMap[y * screenWidth + x] = (SCREEN_TOP + (2 * y + 1) * SCREEN_HEIGHT / (2 * screenHeight)) * HeadlessVideoMonitor.LINE_WIDTH
+					+ SCREEN_LEFT + (2 * x + 1) * SCREEN_WIDTH / (2 * screenWidth);
+		// The calling Thread works the first slice of Consoles, and each worker one of the others
+		if (threads > instances) threads = instances;
+		if (threads < 1) threads = 1;
+		sliceStart = new int[threads + 1];
+		for (int t = 0; t <= threads; t++)
+			sliceStart[t] = t * instances / threads;
+		workers = new Thread[threads - 1];
+		for (int w = 0; w < workers.length; w++) {
+			final int slice = w + 1;
+			workers[w] = new Thread("Headless VectorEnv Worker " + slice) { public void run() {
+				workerLoop(slice);
+			}};
+			workers[w].setDaemon(true);
+			workers[w].start();
+		}
+	}
+
+	public int instances() {
+		return instances;
+	}
+
+	// Runs framesPerStep frames in every Console holding its action (one of the ACTION_ constants)
+	// RAM goes to ram[instance * 128], screen to screen[instance * screenWidth * screenHeight]. Either may be null
+	public void step(int[] actions, byte[] ram, byte[] screen) {
+		stepActions = actions;
+		stepRam = ram;
+		stepScreen = screen;
+		stepReset = false;
+		runAll();
+	}
+
+	// Restores all Consoles to their snapshots, and fills the observations as in step()
+	public void reset(byte[] ram, byte[] screen) {
+		stepRam = ram;
+		stepScreen = screen;
+		stepReset = true;
+		runAll();
+	}
+
+	public void reset(int instance) {
+		restore(instance);
+	}
+
+	// Takes the current state of the Console as the new reset point
+	public void snapshot(int instance) {
+		consoles[instance].saveState(snapshots[instance]);
+	}
+
+	public HeadlessConsole console(int instance) {
+		return consoles[instance];
+	}
+
+	public void close() {
+		closed = true;
+		for (Thread worker : workers)
+			LockSupport.unpark(worker);
+	}
+
+	private void runAll() {
+		if (closed) throw new IllegalStateException("VectorEnv closed");
+		caller = Thread.currentThread();
+		pending.set(workers.length);
+		generation++;			// Publishes the step parameters to the workers
+		for (Thread worker : workers)
+			LockSupport.unpark(worker);
+		runSlice(0);
+		while (pending.get() > 0)
+			LockSupport.park(this);
+		if (failure != null) {
+			Throwable e = failure;
+			failure = null;
+			throw new IllegalStateException("VectorEnv step failed", e);
+		}
+	}
+
+	private void workerLoop(int slice) {
+		int seen = 0;
+		while (true) {
+			while (generation == seen && !closed)
+				LockSupport.park(this);
+			if (closed) return;
+			seen = generation;
+			try {
+				runSlice(slice);
+			} catch (Throwable e) {
+				failure = e;
+			}
+			if (pending.decrementAndGet() == 0) LockSupport.unpark(caller);
+		}
+	}
+
+	private void runSlice(int slice) {
+		for (int i = sliceStart[slice], end = sliceStart[slice + 1]; i < end; i++) {
+			HeadlessConsole console = consoles[i];
+			if (stepReset)
+				restore(i);
+			else {
+				action(i, stepActions[i]);
+				for (int f = 0; f < framesPerStep; f++)
+					console.stepFrame();
+			}
+			if (stepRam != null) console.ram().copyBytes(stepRam, i * RAM_SIZE);
+			if (stepScreen != null) screen(console.videoMonitor().frame(), stepScreen, i * screenSize);
+		}
+	}
+
+	private void restore(int instance) {
+		consoles[instance].loadState(snapshots[instance]);
+		action(instance, ACTION_NOOP);
+	}
+
+	private void action(int instance, int action) {
+		int current = currentActions[instance];
+		if (action == current) return;
+		currentActions[instance] = action;
+		ConsoleControlsSocket controls = consoles[instance].controlsSocket();
+		int changed = ACTION_CONTROLS[action] ^ ACTION_CONTROLS[current];
+		for (int c = 0; c < JOYSTICK_CONTROLS.length; c++)
+			if ((changed & (1 << c)) != 0)
+				controls.controlStateChanged(JOYSTICK_CONTROLS[c], (ACTION_CONTROLS[action] & (1 << c)) != 0);
+	}
+
+	private void screen(int[] frame, byte[] dest, int offset) {
+		for (int i = 0; i < screenSize; i++) {
+			int pixel = frame[screenMap[i]];
+			dest[offset + i] = (byte) ((((pixel >> 16) & 0xff) * 77 + ((pixel >> 8) & 0xff) * 150 + (pixel & 0xff) * 29) >> 8);
+		}
+	}
+
+
+	private final int instances;
+	private final int framesPerStep;
+	private final int screenSize;
+	private final int[] screenMap;
+	private final HeadlessConsole[] consoles;
+	private final ConsoleSnapshot[] snapshots;
+	private final int[] currentActions;
+
+	private final Thread[] workers;
+	private final int[] sliceStart;
+	private final AtomicInteger pending = new AtomicInteger();
+	private volatile int generation = 0;
+	private volatile boolean closed = false;
+	private volatile Throwable failure;
+	private Thread caller;
+
+	private int[] stepActions;
+	private byte[] stepRam;
+	private byte[] stepScreen;
+	private boolean stepReset;
+
+	public static final int RAM_SIZE = 128;
+
+	// Same action set and order as usual in learning environments for the 2600
+	public static final int ACTION_NOOP = 0, ACTION_FIRE = 1, ACTION_UP = 2, ACTION_RIGHT = 3, ACTION_LEFT = 4, ACTION_DOWN = 5,
+		ACTION_UPRIGHT = 6, ACTION_UPLEFT = 7, ACTION_DOWNRIGHT = 8, ACTION_DOWNLEFT = 9,
+		ACTION_UPFIRE = 10, ACTION_RIGHTFIRE = 11, ACTION_LEFTFIRE = 12, ACTION_DOWNFIRE = 13,
+		ACTION_UPRIGHTFIRE = 14, ACTION_UPLEFTFIRE = 15, ACTION_DOWNRIGHTFIRE = 16, ACTION_DOWNLEFTFIRE = 17;
+	public static final int ACTIONS = 18;
+
+	static final Control[] JOYSTICK_CONTROLS = { Control.JOY0_UP, Control.JOY0_DOWN, Control.JOY0_LEFT, Control.JOY0_RIGHT, Control.JOY0_BUTTON };
+	static final int U = 1, D = 2, L = 4, R = 8, F = 16;
+	static final int[] ACTION_CONTROLS = { 0, F, U, R, L, D, U|R, U|L, D|R, D|L, U|F, R|F, L|F, D|F, U|R|F, U|L|F, D|R|F, D|L|F };
+
+	private static final int SCREEN_LEFT = 68;
+	private static final int SCREEN_WIDTH = 160;
+	private static final int SCREEN_TOP = 32;
+	private static final int SCREEN_HEIGHT = 210;
+	private static final int STARTUP_FRAMES = 60;
+
+}
@@ -0,0 +1,146 @@
+// Copyright 2011-2012 Paulo Augusto Peccin. See licence.txt distributed with this file.
+
+package org.javatari.pc.headless;
+
+import java.util.Arrays;
+
+import org.javatari.general.av.video.DirectVideoMonitor;
+import org.javatari.general.av.video.VideoSignal;
+import org.javatari.general.av.video.VideoStandard;
+import org.javatari.parameters.Parameters;
+
+/** VideoMonitor with no display. Lines are rendered in place into a frame buffer kept for inspection */
+public final class HeadlessVideoMonitor implements DirectVideoMonitor {
+
+	public void connect(VideoSignal videoSignal) {
+		this.videoSignal = videoSignal;
+		videoSignal.connectMonitor(this);
+	}
+
+	// Pixels of the last complete frame, LINE_WIDTH per line, valid up to frameLines()
+	// Lines of the frame in progress overwrite it, so inspect between frames only
+	public int[] frame() {
+		return frame;
+	}
+
+	public int frameLines() {
+		return frameLines;
+	}
+
+	public long frames() {
+		return frames;
+	}
+
+	public long frameHash() {
+		long hash = FNV_OFFSET;
+		for (int i = 0, end = frameLines * LINE_WIDTH; i < end; i++)
+			hash = (hash ^ frame[i]) * FNV_PRIME;
+		return hash;
+	}
+
+	@Override
+	public boolean nextLine(int[] pixels, boolean vSynch) {
+		if (pixels == null) {		// Signal is off
+			line = 0;
+			return false;
+		}
+		System.arraycopy(pixels, 0, frame, line * LINE_WIDTH, LINE_WIDTH);
+		return lineRendered(vSynch);
+	}
+
+	@Override
+	public int[] lineBuffer() {
+		return frame;
+	}
+
+	@Override
+	public int lineBufferOffset() {
+		return line * LINE_WIDTH;
+	}
+
+	@Override
+	public boolean lineRendered(boolean vSynch) {
+		// Same sequence as the Screen Monitor, so frames end at the same lines
+		boolean vSynched = false;
+		int height = videoSignal.standard().height;
+		if (line > height + VSYNC_TOLERANCE) vSynched = newFrame();		// Maximum lines exceeded
+		line++;
+		if (videoStandardDetected == null) videoStandardDetectionFrameLineCount++;
+		if (vSynch) {
+			if (videoStandardDetected == null) videoStandardDetectionNewFrame();
+			if (line >= height - VSYNC_TOLERANCE) vSynched = newFrame();
+		}
+		return vSynched;
+	}
+
+	@Override
+	public void showOSD(String message, boolean overlap) {
+		// No display
+	}
+
+	@Override
+	public void synchOutput() {
+		// No display
+	}
+
+	@Override
+	public int currentLine() {
+		return line;
+	}
+
+	@Override
+	public void videoStandardDetectionStart() {
+		videoStandardDetected = null;
+		videoStandardDetectionFrameCount = 0;
+		videoStandardDetectionFrameLineCount = 0;
+	}
+
+	@Override
+	public VideoStandard videoStandardDetected() {
+		return videoStandardDetected;
+	}
+
+	public void reset() {
+		Arrays.fill(frame, 0);
+		line = 0;
+		frameLines = 0;
+		frames = 0;
+	}
+
+	private boolean newFrame() {
+		frameLines = line;
+		frames++;
+		line = 0;
+		return true;
+	}
+
+	private void videoStandardDetectionNewFrame() {
+		int linesCount = videoStandardDetectionFrameLineCount;
+		videoStandardDetectionFrameLineCount = 0;
+		// Same criteria as the Screen Monitor: 5 frames with NTSC 262 +- 10 or PAL 312 +- 10 lines
+		if ((linesCount >= 252 && linesCount <= 272) || (linesCount >= 302 && linesCount <= 322))
+			if (++videoStandardDetectionFrameCount >= 5)
+				videoStandardDetected = linesCount < 290 ? VideoStandard.NTSC : VideoStandard.PAL;
+	}
+
+
+	private VideoSignal videoSignal;
+	private int line = 0;
+	private int frameLines = 0;
+	private long frames = 0;
+
+	private VideoStandard videoStandardDetected;
+	private int videoStandardDetectionFrameCount;
+	private int videoStandardDetectionFrameLineCount;
+
+	private static final int VSYNC_TOLERANCE = Parameters.SCREEN_VSYNC_TOLERANCE;
+
+	public static final int LINE_WIDTH = VideoStandard.NTSC.width;
+	public static final int MAX_LINES = VideoStandard.PAL.height + VSYNC_TOLERANCE + 2;
+
+	private final int[] frame = new int[LINE_WIDTH * MAX_LINES];
+
+	private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+	private static final long FNV_PRIME = 0x100000001b3L;
+
+}
@@ -0,0 +1,317 @@
+// Copyright 2011-2012 Paulo Augusto Peccin. See licence.txt distributed with this file.
+
+package org.javatari.pc.headless;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.PriorityQueue;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+import org.javatari.atari.cartridge.ROMFormatUnsupportedException;
+import org.javatari.atari.console.savestate.ConsoleSnapshot;
+import org.javatari.atari.controls.ConsoleControlsSocket;
+
+/**
+ * Explores the states reachable from the start of a ROM, holding each joystick action for some frames on every state found.
+ * States are told apart by a hash of the RAM and the video frame, and the ones showing RAM values never seen before go first.
+ * Expansions run in parallel, but are merged in a fixed order so results are the same with any number of Threads
+ */
+public final class StateExplorer {
+
+	public StateExplorer(File rom, int threads, int framesPerAction, long seed) throws IOException, ROMFormatUnsupportedException {
+		this.framesPerAction = framesPerAction;
+		consoles = new HeadlessConsole[threads];
+		scratch = new ConsoleSnapshot[threads];
+		for (int i = 0; i < threads; i++) {
+			consoles[i] = new HeadlessConsole();
+			consoles[i].randomizer(new Random(seed));
+			consoles[i].loadCartridge(rom);
+			consoles[i].powerOn();
+			// Same seed and frames, so all Consoles settle in the same start state
+			consoles[i].runFrames(STARTUP_FRAMES);
+			scratch[i] = consoles[i].newSnapshot();
+		}
+		steadyLines = consoles[0].videoMonitor().frameLines();
+		workers = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+			private int count = 0;
+			@Override
+			public synchronized Thread newThread(Runnable r) {
+				Thread thread = new Thread(r, "Explorer Worker " + count++);
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+	}
+
+	// Explores until maxStates different states are found or no state is left to expand
+	public Report explore(int maxStates) throws InterruptedException {
+		long start = System.nanoTime();
+		Report report = new Report(steadyLines);
+		StateHashSet visited = new StateHashSet();
+		int[] ramValueCounts = new int[RAM_SIZE * 256];
+		PriorityQueue<Node> frontier = new PriorityQueue<Node>(1024, NOVELTY_ORDER);
+
+		HeadlessConsole first = consoles[0];
+		ConsoleSnapshot rootState = first.newSnapshot();
+		first.saveState(rootState);
+		byte[] ram = new byte[RAM_SIZE];
+		first.ram().copyBytes(ram, 0);
+		visited.add(stateHash(ram, first.videoMonitor().frameHash()));
+		frontier.add(new Node(rootState, null, -1, 0, novelty(ram, ramValueCounts), report.states++));
+
+		int batchSize = consoles.length * BATCH_PER_THREAD;
+		List<Node> batch = new ArrayList<Node>(batchSize);
+		while (!frontier.isEmpty() && report.states < maxStates) {
+			batch.clear();
+			while (batch.size() < batchSize && !frontier.isEmpty()) batch.add(frontier.poll());
+			Child[][] children = expand(batch);
+			report.expansions += batch.size();
+			for (int n = 0; n < batch.size() && report.states < maxStates; n++) {
+				Node parent = batch.get(n);
+				for (int a = 0; a < HeadlessVectorEnv.ACTIONS && report.states < maxStates; a++) {
+					Child child = children[n][a];
+					report.transitions++;
+					if (child.error != null) {
+						report.fault(new Fault("CRASH " + child.error, parent, a, framesPerAction));
+						continue;
+					}
+					if (!visited.add(child.hash)) continue;
+					Node node = new Node(child.state, parent, a, parent.depth + 1, novelty(child.ram, ramValueCounts), report.states++);
+					if (node.depth > report.maxDepth) report.maxDepth = node.depth;
+					if (child.jammed) report.fault(new Fault("JAM at PC " + Integer.toHexString(child.pc), parent, a, framesPerAction));
+					if (child.badLines != 0) report.fault(new Fault("TIMING " + child.badLines + " lines", parent, a, framesPerAction));
+					// Jammed states keep running as NOPs here, but would be dead on a real machine
+					if (!child.jammed) frontier.add(node);
+				}
+			}
+		}
+		for (int v : ramValueCounts)
+			if (v > 0) report.ramValuesSeen++;
+		report.frontier = frontier.size();
+		report.nanos = System.nanoTime() - start;
+		return report;
+	}
+
+	public void shutdown() {
+		workers.shutdownNow();
+	}
+
+	// Each worker takes every nth Node of the batch with its own Console
+	private Child[][] expand(final List<Node> batch) throws InterruptedException {
+		final Child[][] children = new Child[batch.size()][];
+		List<Future<Void>> futures = new ArrayList<Future<Void>>(consoles.length);
+		for (int w = 0; w < consoles.length; w++) {
+			final int worker = w;
+			futures.add(workers.submit(new Callable<Void>() {
+				@Override
+				public Void call() {
+					for (int n = worker; n < batch.size(); n += consoles.length)
+						children[n] = expand(consoles[worker], scratch[worker], batch.get(n).state);
+					return null;
+				}
+			}));
+		}
+		for (Future<Void> future : futures)
+			try {
+				future.get();
+			} catch (ExecutionException e) {
+				throw new IllegalStateException(e.getCause());		// expand catches everything, should not happen
+			}
+		return children;
+	}
+
+	private Child[] expand(HeadlessConsole console, ConsoleSnapshot scratch, ConsoleSnapshot state) {
+		Child[] children = new Child[HeadlessVectorEnv.ACTIONS];
+		ConsoleControlsSocket controls = console.controlsSocket();
+		for (int a = 0; a < HeadlessVectorEnv.ACTIONS; a++) {
+			Child child = new Child();
+			children[a] = child;
+			try {
+				console.loadState(state);
+				// Joystick inputs are not part of the state, so set all of them
+				int pressed = HeadlessVectorEnv.ACTION_CONTROLS[a];
+				for (int c = 0; c < HeadlessVectorEnv.JOYSTICK_CONTROLS.length; c++)
+					controls.controlStateChanged(HeadlessVectorEnv.JOYSTICK_CONTROLS[c], (pressed & (1 << c)) != 0);
+				console.cpu().jammed = false;
+				for (int f = 0; f < framesPerAction; f++) {
+					console.stepFrame();
+					int lines = console.videoMonitor().frameLines();
+					if (lines != steadyLines && child.badLines == 0) child.badLines = lines;
+				}
+				child.jammed = console.cpu().jammed;
+				child.pc = console.cpu().PC;
+				child.ram = new byte[RAM_SIZE];
+				console.ram().copyBytes(child.ram, 0);
+				child.hash = stateHash(child.ram, console.videoMonitor().frameHash());
+				// Kept states take only the bytes used
+				console.saveState(scratch);
+				child.state = new ConsoleSnapshot(scratch.length());
+				child.state.copyFrom(scratch);
+			} catch (Throwable e) {
+				child.error = e;
+			}
+		}
+		return children;
+	}
+
+	// RAM values never seen before at each address, counting this one
+	private static int novelty(byte[] ram, int[] ramValueCounts) {
+		int novelty = 0;
+		for (int i = 0; i < RAM_SIZE; i++)
+			if (ramValueCounts[(i << 8) | (ram[i] & 0xff)]++ == 0) novelty++;
+		return novelty;
+	}
+
+	private static long stateHash(byte[] ram, long frameHash) {
+		long hash = FNV_OFFSET;
+		for (byte b : ram)
+			hash = (hash ^ b) * FNV_PRIME;
+		return (hash ^ frameHash) * FNV_PRIME;
+	}
+
+
+	private final int framesPerAction;
+	private final int steadyLines;
+	private final HeadlessConsole[] consoles;
+	private final ConsoleSnapshot[] scratch;
+	private final ExecutorService workers;
+
+	private static final int RAM_SIZE = HeadlessVectorEnv.RAM_SIZE;
+	private static final int STARTUP_FRAMES = 60;
+	private static final int BATCH_PER_THREAD = 4;
+	private static final int MAX_FAULTS_KEPT = 50;
+	private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+	private static final long FNV_PRIME = 0x100000001b3L;
+
+	static final String[] ACTION_NAMES = { "NOOP", "FIRE", "UP", "RIGHT", "LEFT", "DOWN", "UPRIGHT", "UPLEFT", "DOWNRIGHT", "DOWNLEFT",
+		"UPFIRE", "RIGHTFIRE", "LEFTFIRE", "DOWNFIRE", "UPRIGHTFIRE", "UPLEFTFIRE", "DOWNRIGHTFIRE", "DOWNLEFTFIRE" };
+
+	// Most novel first, then the shallowest, then the oldest
+	private static final Comparator<Node> NOVELTY_ORDER = new Comparator<Node>() {
+		@Override
+		public int compare(Node a, Node b) {
+			if (a.novelty != b.novelty) return b.novelty - a.novelty;
+			if (a.depth != b.depth) return a.depth - b.depth;
+			return a.order < b.order ? -1 : a.order > b.order ? 1 : 0;
+		}
+	};
+
+
+	private static final class Node {
+		Node(ConsoleSnapshot state, Node parent, int action, int depth, int novelty, long order) {
+			this.state = state;
+			this.parent = parent;
+			this.action = action;
+			this.depth = depth;
+			this.novelty = novelty;
+			this.order = order;
+		}
+		final ConsoleSnapshot state;
+		final Node parent;
+		final int action;
+		final int depth;
+		final int novelty;
+		final long order;
+	}
+
+	private static final class Child {
+		ConsoleSnapshot state;
+		byte[] ram;
+		long hash;
+		int pc;
+		int badLines = 0;
+		boolean jammed = false;
+		Throwable error;
+	}
+
+	// Open addressing set of 64 bit state hashes with linear probing. 0 marks empty slots, so a 0 hash is stored as 1
+	private static final class StateHashSet {
+		boolean add(long hash) {
+			if (hash == 0) hash = 1;
+			if (size >= (table.length >> 1)) grow();
+			int mask = table.length - 1;
+			int i = (int) (hash ^ (hash >>> 32)) & mask;
+			while (table[i] != 0) {
+				if (table[i] == hash) return false;
+				i = (i + 1) & mask;
+			}
+			table[i] = hash;
+			size++;
+			return true;
+		}
+		private void grow() {
+			long[] old = table;
+			table = new long[old.length << 1];
+			size = 0;
+			for (long hash : old)
+				if (hash != 0) add(hash);
+		}
+		private long[] table = new long[1 << 12];
+		private int size = 0;
+	}
+
+	public static final class Fault {
+		Fault(String kind, Node parent, int action, int framesPerAction) {
+			this.kind = kind;
+			this.depth = parent.depth + 1;
+			// Inputs from the start state, as actions held for framesPerAction frames each
+			StringBuilder path = new StringBuilder(ACTION_NAMES[action]);
+			for (Node node = parent; node.parent != null; node = node.parent)
+				path.insert(0, ACTION_NAMES[node.action] + " ");
+			this.inputs = path.toString() + " (" + framesPerAction + " frames each)";
+		}
+		@Override
+		public String toString() {
+			return kind + " at depth " + depth + ": " + inputs;
+		}
+		public final String kind;
+		public final int depth;
+		public final String inputs;
+	}
+
+	public static final class Report {
+		Report(int steadyLines) {
+			this.steadyLines = steadyLines;
+		}
+		void fault(Fault fault) {
+			if (fault.kind.startsWith("JAM")) jams++;
+			else if (fault.kind.startsWith("TIMING")) timingFaults++;
+			else crashes++;
+			if (faults.size() < MAX_FAULTS_KEPT) faults.add(fault);
+		}
+		@Override
+		public String toString() {
+			double seconds = nanos / 1000000000d;
+			StringBuilder res = new StringBuilder(String.format(Locale.ENGLISH,
+				"%d states from %d expansions, %d transitions in %.3fs: %.1f transitions/s, max depth %d, %d left to expand, %d RAM values seen (%.1f%%)",
+				states, expansions, transitions, seconds, transitions / seconds, maxDepth, frontier, ramValuesSeen, ramValuesSeen * 100d / (RAM_SIZE * 256)));
+			res.append(String.format(Locale.ENGLISH, "\n%d jams, %d timing faults (frames not %d lines), %d crashes", jams, timingFaults, steadyLines, crashes));
+			for (Fault fault : faults)
+				res.append("\n  ").append(fault);
+			return res.toString();
+		}
+		public final int steadyLines;
+		public int states = 0;
+		public long expansions = 0;
+		public long transitions = 0;
+		public int maxDepth = 0;
+		public int frontier = 0;
+		public int ramValuesSeen = 0;
+		public int jams = 0;
+		public int timingFaults = 0;
+		public int crashes = 0;
+		public final List<Fault> faults = new ArrayList<Fault>();
+		public long nanos = 0;
+	}
+
+}
@@ -27,6 +27,7 @@ public class EmbeddedRoom extends Room {
     if (windowScreen == null) windowScreen = buildDesktopScreenPeripheral();
     currentConsole.pause();
     windowScreen.monitor().setCartridgeChangeEnabled(embeddedScreen.monitor().isCartridgeChangeEnabled());
+    windowScreen.monitor().setStatsSpeaker(speaker);
     windowScreen.connect(currentConsole.videoOutput(), currentConsole.controlsSocket(), currentConsole.cartridgeSocket());
     awtControls.connectScreen(windowScreen);
     windowScreen.powerOn(fullScreen);
@@ -4,10 +4,13 @@ package org.javatari.pc.room;
 
 import org.javatari.atari.cartridge.Cartridge;
 import org.javatari.atari.console.Console;
+import org.javatari.atari.controls.InputLog;
 import org.javatari.atari.network.ClientConsole;
 import org.javatari.atari.network.RemoteReceiver;
 import org.javatari.atari.network.RemoteTransmitter;
 import org.javatari.atari.network.ServerConsole;
+import org.javatari.general.av.audio.AudioMonitorTee;
+import org.javatari.general.av.audio.WavAudioWriter;
 import org.javatari.parameters.Parameters;
 import org.javatari.pc.cartridge.BuiltInROM;
 import org.javatari.pc.cartridge.ROMLoader;
@@ -21,6 +24,9 @@ import org.javatari.pc.speaker.Speaker;
 import org.javatari.utils.Terminator;
 
 import java.awt.*;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
 import java.security.AccessControlException;
 import java.util.ArrayList;
 
@@ -36,11 +42,16 @@ public class Room {
     speaker.powerOn();
     awtControls.powerOn();
     insertCartridgeProvidedIfNoneInserted();
-    if (currentConsole.cartridgeSocket().inserted() != null) currentConsole.powerOn();
+    if (currentConsole.cartridgeSocket().inserted() == null) return;
+    if (audioTee != null) audioCaptureStart();
+    if (isStandaloneMode() && !Parameters.CONSOLE_INPUT_LOG.isEmpty()) inputLogRecordStart();
+    else currentConsole.powerOn();
   }
 
   public void powerOff() {
     if (currentConsole != null) currentConsole.extendedPowerOff();
+    if (currentConsole != null && currentConsole == standaloneConsole) inputLogRecordStop();
+    if (audioTee != null) audioCaptureStop();
     awtControls.powerOff();
     speaker.powerOff();
     screen.powerOff();
@@ -153,6 +164,8 @@ public class Room {
     if (screen != null) throw new IllegalStateException();
     screen = buildScreenPeripheral();
     speaker = new Speaker();
+    screen.monitor().setStatsSpeaker(speaker);
+    if (!Parameters.CONSOLE_AUDIO_CAPTURE.isEmpty()) audioTee = new AudioMonitorTee();
     awtControls = new AWTConsoleControls();
     awtControls.connectScreen(screen);
     stateMedia = new FileSaveStateMedia();
@@ -170,11 +183,59 @@ public class Room {
     if (currentConsole == console) return;
     currentConsole = console;
     screen.connect(currentConsole.videoOutput(), currentConsole.controlsSocket(), currentConsole.cartridgeSocket());
-    speaker.connect(currentConsole.audioOutput());
+    if (audioTee != null) {
+      audioTee.connect(currentConsole.audioOutput());
+      speaker.connect(audioTee);
+    } else
+      speaker.connect(currentConsole.audioOutput());
     awtControls.connect(currentConsole.controlsSocket(), currentConsole.cartridgeSocket());
     stateMedia.connect(currentConsole.saveStateSocket());
   }
 
+  private void inputLogRecordStart() {
+    Cartridge cartridge = currentConsole.cartridgeSocket().inserted();
+    currentConsole.inputLogRecord(new InputLog(Parameters.CONSOLE_INPUT_LOG_SEED, cartridge.rom().info.hash));
+  }
+
+  private void inputLogRecordStop() {
+    InputLog log = standaloneConsole.inputLogStop();
+    if (log == null || log.frames() == 0) return;
+    try {
+      FileOutputStream stream = new FileOutputStream(Parameters.CONSOLE_INPUT_LOG);
+      try {
+        log.writeTo(stream);
+      } finally {
+        stream.close();
+      }
+      System.out.println("Input Log recorded: " + log.frames() + " frames to " + Parameters.CONSOLE_INPUT_LOG);
+    } catch (IOException ex) {
+      System.out.println("Could not write Input Log to: " + Parameters.CONSOLE_INPUT_LOG);
+      System.out.println(ex);
+    }
+  }
+
+  private void audioCaptureStart() {
+    try {
+      audioTee.capture(new WavAudioWriter(new File(Parameters.CONSOLE_AUDIO_CAPTURE), Parameters.TIA_AUDIO_SAMPLE_RATE));
+    } catch (IOException ex) {
+      System.out.println("Could not start Audio capture to: " + Parameters.CONSOLE_AUDIO_CAPTURE);
+      System.out.println(ex);
+    }
+  }
+
+  private void audioCaptureStop() {
+    WavAudioWriter capture = audioTee.capture(null);
+    if (capture == null) return;
+    try {
+      capture.close();
+      System.out.println("Audio captured: " + capture.samples() + " samples to " + capture.file()
+        + (capture.droppedSamples() > 0 ? ", " + capture.droppedSamples() + " samples dropped" : ""));
+    } catch (IOException ex) {
+      System.out.println("Could not write Audio capture to: " + capture.file());
+      System.out.println(ex);
+    }
+  }
+
   private void insertCartridgeProvidedIfNoneInserted() {
     if (currentConsole.cartridgeSocket().inserted() != null) return;
     loadCartridgeProvided();
@@ -282,6 +343,7 @@ public class Room {
 
   protected Screen screen;
   protected Speaker speaker;
+  protected AudioMonitorTee audioTee;
   protected AWTConsoleControls awtControls;
   protected FileSaveStateMedia stateMedia;
   protected Cartridge cartridgeProvided;
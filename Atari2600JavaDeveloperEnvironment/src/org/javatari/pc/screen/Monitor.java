@@ -6,7 +6,7 @@ package org.javatari.pc.screen;
 import org.javatari.atari.cartridge.Cartridge;
 import org.javatari.atari.cartridge.CartridgeInsertionListener;
 import org.javatari.atari.cartridge.CartridgeSocket;
-import org.javatari.general.av.video.VideoMonitor;
+import org.javatari.general.av.video.DirectVideoMonitor;
 import org.javatari.general.av.video.VideoSignal;
 import org.javatari.general.av.video.VideoStandard;
 import org.javatari.general.board.Clock;
@@ -14,6 +14,7 @@ import org.javatari.general.board.ClockDriven;
 import org.javatari.parameters.Parameters;
 import org.javatari.pc.cartridge.FileROMChooser;
 import org.javatari.pc.cartridge.URLROMChooser;
+import org.javatari.pc.speaker.Speaker;
 import org.javatari.utils.Environment;
 import org.javatari.utils.SwingHelper;
 
@@ -23,16 +24,19 @@ import java.awt.*;
 import java.awt.datatransfer.Clipboard;
 import java.awt.datatransfer.Transferable;
 import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.awt.image.Raster;
 import java.io.IOException;
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 
 
-public final class Monitor implements ClockDriven, VideoMonitor, CartridgeInsertionListener {
+public final class Monitor implements ClockDriven, DirectVideoMonitor, CartridgeInsertionListener {
 
   public Monitor() {
     super();
-    this.fps = DEFAULT_FPS;
+    this.fps = AUDIO_MASTER_CLOCK ? 0 : DEFAULT_FPS;    // The Console Clock synchs the output when it is the audio master
     init();
   }
 
@@ -51,6 +55,11 @@ public final class Monitor implements ClockDriven, VideoMonitor, CartridgeInsert
     displayCenter();
   }
 
+  // Speaker whose stats are shown with the video ones
+  public void setStatsSpeaker(Speaker speaker) {
+    statsSpeaker = speaker;
+  }
+
   public void setFixedSize(boolean fixed) {
     fixedSizeMode = fixed;
   }
@@ -67,6 +76,16 @@ public final class Monitor implements ClockDriven, VideoMonitor, CartridgeInsert
     return cartridgeChangeEnabled;
   }
 
+  // Frames completed but replaced by a newer one before being displayed
+  public long framesDropped() {
+    return framesDropped;
+  }
+
+  // Refreshes with no new frame completed since the last one
+  public long framesRepeated() {
+    return framesRepeated;
+  }
+
   public void addControlInputComponents(List<Component> inputs) {
     monitorControls.addInputComponents(inputs);
   }
@@ -75,19 +94,19 @@ public final class Monitor implements ClockDriven, VideoMonitor, CartridgeInsert
     cleanBackBuffer();
     paintLogo();
     line = 0;
-    clock.go();
+    if (clock != null) clock.go();
   }
 
   public void powerOff() {
     synchronized (refreshMonitor) {
-      clock.pause();
+      if (clock != null) clock.pause();
       signalState(false);
     }
   }
 
   public void destroy() {
     synchronized (refreshMonitor) {
-      clock.terminate();
+      if (clock != null) clock.terminate();
     }
   }
 
@@ -99,21 +118,32 @@ public final class Monitor implements ClockDriven, VideoMonitor, CartridgeInsert
       if (!signalState(pixels != null))    // If signal is off, we are done
         return false;
       // Process new line received
-      boolean vSynched = false;
       if (line < signalHeight)
         System.arraycopy(pixels, 0, backBuffer, line * signalWidth, signalWidth);
-      else
-        vSynched = maxLineExceeded();
-      line++;
-      if (videoStandardDetected == null) videoStandardDetectionFrameLineCount++;
-      if (vSynchSignal) {
-        if (videoStandardDetected == null) videoStandardDetectionNewFrame();
-        vSynched = newFrame() || vSynched;
-      }
-      return vSynched;
+      return lineReceived(vSynchSignal);
     }
   }
 
+  @Override
+  public int[] lineBuffer() {
+    // Buffers follow the signal standard before lending the row, as nextLine() is not called for every line
+    adjustToVideoSignal();
+    // Lines beyond the signal height are rendered but discarded
+    return line < signalHeight ? backBuffer : discardedLine;
+  }
+
+  @Override
+  public int lineBufferOffset() {
+    return line < signalHeight ? line * signalWidth : 0;
+  }
+
+  @Override
+  public boolean lineRendered(boolean vSynchSignal) {
+    // Line is already in the backBuffer, so no need to synchronize or copy
+    if (!signalOn) signalState(true);
+    return lineReceived(vSynchSignal);
+  }
+
   @Override
   public VideoStandard videoStandardDetected() {
     return videoStandardDetected;
@@ -166,18 +196,33 @@ public final class Monitor implements ClockDriven, VideoMonitor, CartridgeInsert
       setCrtMode(cartridge == null ? 0 : cartridge.getInfo().crtMode == 1 ? 1 : 0);
   }
 
+  private boolean lineReceived(boolean vSynchSignal) {
+    boolean vSynched = false;
+    if (line < signalHeight) backLineHashes[line] = lineHash(backBuffer, line * signalWidth, signalWidth);
+    else vSynched = maxLineExceeded();
+    line++;
+    if (videoStandardDetected == null) videoStandardDetectionFrameLineCount++;
+    if (vSynchSignal) {
+      if (videoStandardDetected == null) videoStandardDetectionNewFrame();
+      vSynched = newFrame() || vSynched;
+    }
+    return vSynched;
+  }
+
   private boolean newFrame() {
     if (line < signalHeight - VSYNC_TOLERANCE) return false;
-    // Copy only the contents needed (displayWidth x displayHeight) to the frontBuffer
-    arrayCopyWithStride(
-      backBuffer, displayOriginY * signalWidth + displayOriginX,
-      frontBuffer, 0, displayWidth * displayHeight,
-      displayWidth, signalWidth
-    );
+    // Publish the finished buffer and take the spare one, never waiting for the display
+    int previous = readyBufferIndex.getAndSet(backBufferIndex | READY_FRESH);
+    if ((previous & READY_FRESH) != 0) framesDropped++;
+    backBufferIndex = previous & READY_INDEX;
+    backBuffer = frameBuffers[backBufferIndex];
+    backLineHashes = frameLineHashes[backBufferIndex];
     if (fps < 0) clock.interrupt();
     if (debug > 0) cleanBackBuffer();
     if (showStats)
-      showOSD(videoSignal.standard() + "  " + line + " lines,  CRT mode " + (crtMode == 0 ? "off" : crtMode), true);
+      showOSD("<html>" + videoSignal.standard() + "  " + line + " lines,  CRT mode " + (crtMode == 0 ? "off" : crtMode)
+        + ",  dropped " + framesDropped + ", repeated " + framesRepeated
+        + (statsSpeaker != null ? "<br>Sound " + statsSpeaker.stats() : "") + "</html>", true);
     line = 0;
     return true;
   }
@@ -191,6 +236,7 @@ public final class Monitor implements ClockDriven, VideoMonitor, CartridgeInsert
   }
 
   private boolean signalState(boolean state) {
+    if (state != signalOn) frameImageValid = false;
     if (state) {
       signalOn = true;
       adjustToVideoSignal();
@@ -204,6 +250,7 @@ public final class Monitor implements ClockDriven, VideoMonitor, CartridgeInsert
   private void cleanBackBuffer() {
     // Clear screen if in debug mode, and put a nice green for detection of undrawn lines
     Arrays.fill(backBuffer, Color.GREEN.getRGB());
+    Arrays.fill(backLineHashes, lineHash(backBuffer, 0, signalWidth));
   }
 
   private void videoStandardDetectionNewFrame() {
@@ -272,7 +319,7 @@ public final class Monitor implements ClockDriven, VideoMonitor, CartridgeInsert
     prepareResources();
     adjustToVideoStandard(VideoStandard.NTSC);
     setDisplayDefaultSize();
-    clock = new Clock("Video Monitor", this, fps);
+    if (!AUDIO_MASTER_CLOCK) clock = new Clock("Video Monitor", this, fps);
     cleanBackBuffer();
     paintLogo();
   }
@@ -320,8 +367,22 @@ public final class Monitor implements ClockDriven, VideoMonitor, CartridgeInsert
         signalHeight = videoStandard.height;
         setDisplaySize(displayWidth, displayHeightPct);
         setDisplayOrigin(displayOriginX, displayOriginYPct);
-        backBuffer = new int[signalWidth * signalHeight];
-        frontBuffer = new int[signalWidth * signalHeight];
+        for (int i = 0; i < frameBuffers.length; i++) {
+          frameBuffers[i] = new int[signalWidth * signalHeight];
+          frameLineHashes[i] = new long[signalHeight];
+          frameRasters[i] = Raster.createPackedRaster(new DataBufferInt(frameBuffers[i], frameBuffers[i].length),
+            signalWidth, signalHeight, signalWidth, FRAME_RASTER_MASKS, null);
+        }
+        backBufferIndex = 0;
+        frontBufferIndex = 1;
+        readyBufferIndex.set(2);
+        backBuffer = frameBuffers[backBufferIndex];
+        frontBuffer = frameBuffers[frontBufferIndex];
+        backLineHashes = frameLineHashes[backBufferIndex];
+        frontLineHashes = frameLineHashes[frontBufferIndex];
+        frameImageLineHashes = new long[signalHeight];
+        frameImageValid = false;
+        discardedLine = new int[signalWidth];
         frameImage = new BufferedImage(signalWidth, signalHeight, BufferedImage.TYPE_INT_ARGB);
         if (FRAME_ACCELERATION >= 0) frameImage.setAccelerationPriority(FRAME_ACCELERATION);
       }
@@ -378,10 +439,15 @@ public final class Monitor implements ClockDriven, VideoMonitor, CartridgeInsert
     }
     // Synchronize to avoid changing image properties while refreshing frame
     synchronized (refreshMonitor) {
-      Graphics2D displayGraphics = displayGraphics();
-      if (displayGraphics == null) return;
+      if (display == null) return;
+      frontBufferTakeNewest();
+      frameImageFindDirtyLines();
       // Get the entire Canvas
       Dimension ces = display.displayEffectiveSize();
+      // Nothing to do if the frame and everything on the Canvas is the same as the last refresh
+      if (canSkipRefresh(ces)) return;
+      Graphics2D displayGraphics = displayGraphics();
+      if (displayGraphics == null) return;
       int displayEffectiveWidth = ces.width;
       int displayEffectiveHeight = ces.height;
       // CRT mode 3 OR no MultiBuffering active and needs to superimpose (CRT mode 1, 2 or OSD)
@@ -433,12 +499,77 @@ public final class Monitor implements ClockDriven, VideoMonitor, CartridgeInsert
     if (crtMode > 0 && crtMode != 3) {
       graphics.setComposite(AlphaComposite.getInstance(AlphaComposite.SRC_OVER, CRT_RETENTION_ALPHA));
       // Draw old frame
-      graphics.drawImage(frameImage, 0, 0, effectiveWidth, effectiveHeight, 0, 0, displayWidth, displayHeight, null);
+      graphics.drawImage(frameImage, 0, 0, effectiveWidth, effectiveHeight, displayOriginX, displayOriginY, displayOriginX + displayWidth, displayOriginY + displayHeight, null);
+    }
+    // Update the image to draw with the changed contents stored in the frontBuffer
+    frameImageUpdateDirtyLines();
+    // Draw new frame, only the display area
+    graphics.drawImage(frameImage, 0, 0, effectiveWidth, effectiveHeight, displayOriginX, displayOriginY, displayOriginX + displayWidth, displayOriginY + displayHeight, null);
+  }
+
+  private void frontBufferTakeNewest() {
+    // Take the last finished buffer, if any, giving back the one already displayed
+    if ((readyBufferIndex.get() & READY_FRESH) == 0) {
+      framesRepeated++;
+      return;
     }
-    // Update the image to draw with contents stored in the frontBuffer
-    frameImage.getRaster().setDataElements(0, 0, displayWidth, displayHeight, frontBuffer);
-    // Draw new frame
-    graphics.drawImage(frameImage, 0, 0, effectiveWidth, effectiveHeight, 0, 0, displayWidth, displayHeight, null);
+    frontBufferIndex = readyBufferIndex.getAndSet(frontBufferIndex) & READY_INDEX;
+    frontBuffer = frameBuffers[frontBufferIndex];
+    frontLineHashes = frameLineHashes[frontBufferIndex];
+  }
+
+  private void frameImageFindDirtyLines() {
+    // Compare only the lines in the display area with the ones already in the frameImage
+    int top = displayOriginY, bottom = displayOriginY + displayHeight - 1;
+    if (!frameImageValid || !SKIP_UNCHANGED_FRAMES) {
+      firstDirtyLine = top;
+      lastDirtyLine = bottom;
+      return;
+    }
+    firstDirtyLine = -1;
+    for (int y = top; y <= bottom; y++)
+      if (frontLineHashes[y] != frameImageLineHashes[y]) {
+        firstDirtyLine = y;
+        break;
+      }
+    if (firstDirtyLine < 0) return;
+    lastDirtyLine = firstDirtyLine;
+    for (int y = bottom; y > firstDirtyLine; y--)
+      if (frontLineHashes[y] != frameImageLineHashes[y]) {
+        lastDirtyLine = y;
+        break;
+      }
+  }
+
+  private void frameImageUpdateDirtyLines() {
+    if (firstDirtyLine < 0) return;
+    int lines = lastDirtyLine - firstDirtyLine + 1;
+    if (lines == signalHeight)
+      frameImage.getRaster().setDataElements(0, 0, signalWidth, signalHeight, frontBuffer);
+    else
+      frameImage.getRaster().setDataElements(0, firstDirtyLine,
+        frameRasters[frontBufferIndex].createChild(0, firstDirtyLine, signalWidth, lines, 0, 0, null));
+    System.arraycopy(frontLineHashes, firstDirtyLine, frameImageLineHashes, firstDirtyLine, lines);
+    frameImageValid = true;
+    firstDirtyLine = -1;
+  }
+
+  private boolean canSkipRefresh(Dimension effectiveSize) {
+    // Retention CRT modes and the OSD change the Canvas even if the frame is the same
+    boolean skip = SKIP_UNCHANGED_FRAMES && firstDirtyLine < 0 && frameImageValid && crtMode == 0 && osdFramesLeft < 0
+      && effectiveSize.equals(lastRefreshEffectiveSize) && ++refreshesSkipped < MAX_REFRESHES_SKIPPED;
+    if (!skip) {
+      refreshesSkipped = 0;
+      lastRefreshEffectiveSize = effectiveSize;
+    }
+    return skip;
+  }
+
+  private static long lineHash(int[] pixels, int offset, int length) {
+    long hash = 0xcbf29ce484222325L;
+    for (int i = offset, end = offset + length; i < end; i++)
+      hash = (hash ^ pixels[i]) * 0x100000001b3L;
+    return hash;
   }
 
   private void renderScanlines(Graphics2D graphics, int effectiveWidth, int effectiveHeight) {
@@ -458,6 +589,7 @@ public final class Monitor implements ClockDriven, VideoMonitor, CartridgeInsert
   }
 
   private void setDisplayOrigin(int x, double yPct) {
+    frameImageValid = false;
     displayOriginX = x;
     if (displayOriginX < 0) displayOriginX = 0;
     else if (displayOriginX > signalWidth - displayWidth) displayOriginX = signalWidth - displayWidth;
@@ -491,6 +623,7 @@ public final class Monitor implements ClockDriven, VideoMonitor, CartridgeInsert
   }
 
   private void setDisplayScale(float x, float y) {
+    frameImageValid = false;
     displayScaleX = x;
     if (displayScaleX < 1) displayScaleX = 1;
     displayScaleY = y;
@@ -556,6 +689,7 @@ public final class Monitor implements ClockDriven, VideoMonitor, CartridgeInsert
       int newMode = mode > 4 || mode < 0 ? 0 : mode;
       if (crtMode == newMode) return;
       crtMode = newMode;
+      frameImageValid = false;
       showOSD(crtMode == 0 ? "CRT mode off" : "CRT mode " + crtMode, true);
     }
   }
@@ -647,16 +781,6 @@ public final class Monitor implements ClockDriven, VideoMonitor, CartridgeInsert
     }
   }
 
-  private static void arrayCopyWithStride(int[] src, int srcPos, int dest[], int destPos, int length, int chunk, int stride) {
-    int total = length;
-    while (total > 0) {
-      System.arraycopy(src, srcPos, dest, destPos, chunk);
-      srcPos += stride;
-      destPos += chunk;
-      total -= chunk;
-    }
-  }
-
 
   public Clock clock;
 
@@ -681,8 +805,20 @@ public final class Monitor implements ClockDriven, VideoMonitor, CartridgeInsert
   private int videoStandardDetectionFrameLineCount = 0;
   private int videoStandardDetectionAdtLinesPerFrame = 0;
 
+  // Triple buffering. Emulation owns the back, display owns the front, the third is ready to be exchanged
+  private final int[][] frameBuffers = new int[3][];
+  private final AtomicInteger readyBufferIndex = new AtomicInteger(2);
+  private int backBufferIndex = 0;
+  private int frontBufferIndex = 1;
   private int[] backBuffer;
   private int[] frontBuffer;
+  private final long[][] frameLineHashes = new long[3][];
+  private final Raster[] frameRasters = new Raster[3];
+  private long[] backLineHashes;
+  private long[] frontLineHashes;
+  private volatile long framesDropped = 0;
+  private volatile long framesRepeated = 0;
+  private int[] discardedLine;
 
   private int displayWidth;
   private int displayHeight;
@@ -704,12 +840,19 @@ public final class Monitor implements ClockDriven, VideoMonitor, CartridgeInsert
 
   private int debug = 0;
   private boolean showStats = false;
+  private Speaker statsSpeaker;
 
   private int line = 0;
 
   private MonitorDisplay display;
 
   private BufferedImage frameImage;
+  private long[] frameImageLineHashes;
+  private boolean frameImageValid = false;
+  private int firstDirtyLine = -1;
+  private int lastDirtyLine = -1;
+  private Dimension lastRefreshEffectiveSize;
+  private int refreshesSkipped = 0;
 
   private BufferedImage scanlinesTextureImage;
   private CRTTriadComposite crtTriadComposite;
@@ -726,8 +869,13 @@ public final class Monitor implements ClockDriven, VideoMonitor, CartridgeInsert
 
 
   private static final int VSYNC_TOLERANCE = Parameters.SCREEN_VSYNC_TOLERANCE;
+  private static final int READY_INDEX = 0x03;
+  private static final int READY_FRESH = 0x04;
+  private static final int[] FRAME_RASTER_MASKS = {0x00ff0000, 0x0000ff00, 0x000000ff, 0xff000000};
+  private static final int MAX_REFRESHES_SKIPPED = 60;    // Redraw once in a while anyway, in case the Canvas contents were lost
 
   public static final double DEFAULT_FPS = Parameters.SCREEN_DEFAULT_FPS;
+  private static final boolean AUDIO_MASTER_CLOCK = Parameters.CONSOLE_AUDIO_MASTER_CLOCK;
 
   public static final int DEFAULT_ORIGIN_X = Parameters.SCREEN_DEFAULT_ORIGIN_X;
   public static final double DEFAULT_ORIGIN_Y_PCT = Parameters.SCREEN_DEFAULT_ORIGIN_Y_PCT;    // Percentage of height
@@ -749,6 +897,7 @@ public final class Monitor implements ClockDriven, VideoMonitor, CartridgeInsert
   public static final float SCANLINES_ACCELERATION = Parameters.SCREEN_SCANLINES_ACCELERATION;
   private static final boolean CARTRIDGE_CHANGE = Parameters.SCREEN_CARTRIDGE_CHANGE;
   private static final boolean FIXED_SIZE = Parameters.SCREEN_FIXED_SIZE;
+  private static final boolean SKIP_UNCHANGED_FRAMES = Parameters.SCREEN_SKIP_UNCHANGED_FRAMES;
 
   public static final long serialVersionUID = 0L;
 
@@ -3,20 +3,26 @@
 package org.javatari.pc.speaker;
 
 
-import java.nio.ByteBuffer;
+import java.util.Locale;
+import java.util.concurrent.locks.LockSupport;
 
 import javax.sound.sampled.AudioFormat;
 import javax.sound.sampled.AudioSystem;
+import javax.sound.sampled.DataLine;
+import javax.sound.sampled.LineUnavailableException;
 import javax.sound.sampled.SourceDataLine;
 
-import org.javatari.general.av.audio.AudioMonitor;
+import org.javatari.general.av.audio.AudioLatencyController;
+import org.javatari.general.av.audio.AudioResampler;
+import org.javatari.general.av.audio.AudioSampleRing;
 import org.javatari.general.av.audio.AudioSignal;
+import org.javatari.general.av.audio.BufferedAudioMonitor;
 import org.javatari.general.board.Clock;
 import org.javatari.general.board.ClockDriven;
 import org.javatari.parameters.Parameters;
 
 
-public final class Speaker implements ClockDriven, AudioMonitor  {
+public final class Speaker implements ClockDriven, BufferedAudioMonitor  {
 
 	public void connect(AudioSignal signal) {	// Must be powered off to connect a signal
 		this.signal = signal;
@@ -27,115 +33,257 @@ public final class Speaker implements ClockDriven, AudioMonitor  {
 		if (!triedToGetLine) getLine();
 		if (dataLine == null) return;
 		dataLine.start();
-		clock.go();
+		if (clock != null) clock.go();
 	}
 
 	public void powerOff(){
 		if (dataLine == null) return;
-		clock.pause();
+		if (clock != null) clock.pause();
 		dataLine.flush();
 		dataLine.stop();
 	}
 
 	public void destroy() {
 		if (dataLine == null) return;
-		clock.terminate();
+		if (clock != null) clock.terminate();
 		dataLine.close();
 		dataLine = null;
 	}
 
+	// Producer side, never blocks. Samples that don't fit the ring are dropped and counted
 	@Override
-	public synchronized void nextSamples(byte[] buffer, int quant) {
+	public void nextSamples(short[] buffer, int quant) {
 		if (dataLine == null) return;
 		if (buffer == null) {		// Signal is off
+			flushRequested = true;
 			dataLine.flush();
+			if (latencyControl != null) latencyControl.reset();
 			return;
 		}
-		// Drop samples that don't fit the input buffer available capacity
-		int ava = inputBuffer.remaining();
-		if (ava > quant)
-			ava = quant;
-		// else
-		//	System.out.println(">>>> DROPPED: " + (quant - ava));
-		inputBuffer.put(buffer, 0, ava);
+		// Measure the fill right before the frame is queued, and steer the rate towards the target level
+		if (latencyControl != null) {
+			double ratio = latencyControl.update(ring.size() + queuedOnLine(), underruns);
+			if (!AUDIO_MASTER_CLOCK) resampler.ratio(ratio);		// When master, the Console Clock rate is steered instead
+		}
+		// Bring the frame to the device rate
+		if (resampler != null) {
+			quant = resampler.process(buffer, quant, resampled);
+			buffer = resampled;
+		}
+		int put = ring.put(buffer, quant);
+		lastFrameSamples = put;
+		if (put < quant) {
+			overruns++;
+			droppedSamples += quant - put;
+		}
+		if (writerWaiting) LockSupport.unpark(writer);
 	}
 	
 	@Override
 	public void synchOutput() {
-		refresh();
+		// With a writer Thread of our own, writes are driven by the samples arriving
+		if (!ownWriter) refresh();
+	}
+
+	@Override
+	public int bufferedSamples() {
+		if (dataLine == null) return 0;
+		return (dataLine.getBufferSize() - dataLine.available()) / BYTES_PER_SAMPLE + ring.size();
+	}
+
+	@Override
+	public int bufferTargetSamples() {
+		if (dataLine == null) return 0;
+		// The controlled level plus the frame just written. With no control, keep the line buffer about full
+		if (latencyControl != null) return latencyControl.target() + lastFrameSamples;
+		return dataLine.getBufferSize() / BYTES_PER_SAMPLE;
 	}
 
 	@Override
 	public void clockPulse() {
-		synchOutput();
+		if (writer == null) writer = Thread.currentThread();
+		writeAll();
+	}
+
+	public long underruns() {
+		return underruns;
+	}
+
+	public long overruns() {
+		return overruns;
+	}
+
+	public long droppedSamples() {
+		return droppedSamples;
+	}
+
+	// Time a sample produced now waits to be played, through the ring and the line buffer
+	public double latencyAverage() {		// In milliseconds
+		return latencySamples == 0 ? 0 : latencySum / latencySamples;
+	}
+
+	public double latencyMax() {			// In milliseconds
+		return latencyMax;
+	}
+
+	// Current fill level aimed at, in milliseconds. 0 if not controlled
+	public double latencyTarget() {
+		return latencyControl == null ? 0 : latencyControl.target() * 1000d / outputRate;
+	}
+
+	public String stats() {
+		return String.format(Locale.ENGLISH, "latency %.1fms (max %.1fms, target %.1fms), %d underruns, %d overruns (%d samples dropped)",
+			latencyAverage(), latencyMax(), latencyTarget(), underruns, overruns, droppedSamples);
 	}
 
 	private void getLine() {
 		if (signal == null) return;
 		try {
 			triedToGetLine = true;
-			dataLine = AudioSystem.getSourceDataLine(AUDIO_FORMAT);
-			dataLine.open(AUDIO_FORMAT, OUTPUT_BUFFER_SIZE);
-			inputBuffer = ByteBuffer.allocateDirect(INPUT_BUFFER_SIZE);
-			tempBuffer = new byte[inputBuffer.capacity()];
-			if (ADDED_THREAD_PRIORITY != 0) clock.setPriority(Thread.NORM_PRIORITY + ADDED_THREAD_PRIORITY);
+			openLine();
+			int ringSize = INPUT_BUFFER_SIZE;
+			if (TARGET_LATENCY > 0) {
+				// The rate control needs a Resampler even when the line runs at the TIA rate
+				if (resampler == null) createResampler(SAMPLE_RATE);
+				latencyControl = new AudioLatencyController(TARGET_LATENCY * outputRate / 1000, MAX_LATENCY * outputRate / 1000, MAX_RATE_DEVIATION);
+				// Room for the highest target plus a couple of frames, so nothing is dropped while converging
+				ringSize = Math.max(ringSize, MAX_LATENCY * outputRate / 1000 + 2 * resampled.length);
+			}
+			ring = new AudioSampleRing(ringSize);
+			tempBuffer = new byte[ring.capacity() * BYTES_PER_SAMPLE];
 			System.out.println("Sound Mixer Line: " + dataLine);
 			System.out.println("Sound Output buffer: " + dataLine.getBufferSize());
-			clock = new Clock("Speaker", this, FPS);
+			// When the Console Clock is the audio master it synchs the output, so no Clock of our own
+			if (!AUDIO_MASTER_CLOCK) {
+				clock = new Clock("Speaker", this, FPS);
+				if (ADDED_THREAD_PRIORITY != 0) clock.setPriority(Thread.NORM_PRIORITY + ADDED_THREAD_PRIORITY);
+				ownWriter = FPS != 0;		// 0 = Clock never pulses, output synched externally
+			}
 		} catch (Exception ex) {
 			System.out.println("Unable to acquire audio line:\n" + ex);
 			dataLine = null;
 		}
 	}
 
-	private synchronized int getFromInputBuffer(byte[] buffer, int quant) {
-		inputBuffer.flip();
-		int ava = inputBuffer.remaining();
-		if (ava > quant)
-			ava = quant;
-		inputBuffer.get(buffer, 0, ava);
-		inputBuffer.compact();
-		return ava;
+	// Tries the rate asked, then the usual native device rates, and at last the TIA rate with no resampling
+	private void openLine() throws LineUnavailableException {
+		int[] rates = { OUTPUT_SAMPLE_RATE, 48000, 44100 };
+		for (int rate : rates) {
+			if (rate <= 0 || rate == SAMPLE_RATE) continue;
+			AudioFormat format = new AudioFormat(rate, 16, 1, true, false);
+			if (!AudioSystem.isLineSupported(new DataLine.Info(SourceDataLine.class, format))) continue;
+			try {
+				dataLine = AudioSystem.getSourceDataLine(format);
+				dataLine.open(format, OUTPUT_BUFFER_SIZE * BYTES_PER_SAMPLE);
+				createResampler(rate);
+				System.out.println("Sound resampled from " + SAMPLE_RATE + " to " + rate + " Hz");
+				return;
+			} catch (LineUnavailableException ex) {
+				dataLine = null;
+			}
+		}
+		dataLine = AudioSystem.getSourceDataLine(AUDIO_FORMAT);
+		dataLine.open(AUDIO_FORMAT, OUTPUT_BUFFER_SIZE * BYTES_PER_SAMPLE);
 	}
 
-	private void refresh() {
+	private void createResampler(int rate) {
+		resampler = new AudioResampler(SAMPLE_RATE, rate, MAX_FRAME_SAMPLES);
+		// Room for the rate control pushing the ratio up
+		resampled = new short[(int) (resampler.maxOutput(MAX_FRAME_SAMPLES) * (1 + MAX_RATE_DEVIATION)) + 1];
+		outputRate = rate;
+	}
+
+	// Writer Thread. Waits for samples and writes all of them, blocking on the line only when it is full
+	private void writeAll() {
 		if (dataLine == null) return;
-		int ava = dataLine.available();		// this is a little expensive... :-(
-		if (ava == 0) {
-			if (OUTPUT_BUFFER_FULL_SLEEP_TIME > 0 && FPS < 0) {
-				// System.out.println("Buffer Full, sleeping...");
-				try { Thread.sleep(OUTPUT_BUFFER_FULL_SLEEP_TIME, 0); } catch (InterruptedException e) { }
-			}
-			return;
+		if (flushRequested) {
+			flushRequested = false;
+			ring.skipAll();
 		}
-		int data = getFromInputBuffer(tempBuffer, ava);
-		// System.out.println(ava + ", " + data + ", " + inputBuffer.remaining());
-		if (data == 0) {
-			if (NO_DATA_SLEEP_TIME > 0 && FPS < 0) {
-				// System.out.println("NO DATA, sleeping...");
-				try { Thread.sleep(NO_DATA_SLEEP_TIME, 0); } catch (InterruptedException e) { }
-			}
-			return;
+		if (ring.size() == 0) {
+			writerWaiting = true;
+			if (ring.size() == 0) LockSupport.parkNanos(NO_DATA_WAIT);
+			writerWaiting = false;
+			Thread.interrupted();		// Clock pause() interrupts to wake us
 		}
-		dataLine.write(tempBuffer, 0, data);
+		int queued = queuedOnLine();
+		if (ring.size() == 0) return;
+		if (queued == 0 && started) underruns++;
+		started = true;
+		measureLatency(queued);
+		int data;
+		while ((data = ring.get(tempBuffer, tempBuffer.length / BYTES_PER_SAMPLE)) > 0)
+			dataLine.write(tempBuffer, 0, data * BYTES_PER_SAMPLE);
+	}
+
+	// Console Thread, when it synchs the output. Writes only what fits the line right now
+	private void refresh() {
+		if (dataLine == null) return;
+		if (flushRequested) {
+			flushRequested = false;
+			ring.skipAll();
+		}
+		int ava = dataLine.available() / BYTES_PER_SAMPLE;		// this is a little expensive... :-(
+		int queued = dataLine.getBufferSize() / BYTES_PER_SAMPLE - ava;
+		if (ring.size() == 0) return;
+		if (queued == 0 && started) underruns++;
+		started = true;
+		measureLatency(queued);
+		int data = ring.get(tempBuffer, ava);
+		if (data > 0) dataLine.write(tempBuffer, 0, data * BYTES_PER_SAMPLE);
+	}
+
+	private int queuedOnLine() {
+		return (dataLine.getBufferSize() - dataLine.available()) / BYTES_PER_SAMPLE;
+	}
+
+	private void measureLatency(int queuedOnLine) {
+		double latency = (queuedOnLine + ring.size()) * 1000d / outputRate;
+		latencySum += latency;
+		latencySamples++;
+		if (latency > latencyMax) latencyMax = latency;
 	}
 
 
 	public Clock clock;
 	private AudioSignal signal;
 	private SourceDataLine dataLine;
-	private ByteBuffer inputBuffer;
+	private AudioSampleRing ring;
 	private byte[] tempBuffer;		
 	private boolean triedToGetLine = false;
+	private AudioResampler resampler;
+	private short[] resampled;
+	private int outputRate = SAMPLE_RATE;
+	private AudioLatencyController latencyControl;
+	private int lastFrameSamples = 0;
+
+	private boolean ownWriter = false;
+	private volatile Thread writer;
+	private volatile boolean writerWaiting = false;
+	private volatile boolean flushRequested = false;
+	private boolean started = false;
+
+	private volatile long underruns = 0;
+	private volatile long overruns = 0;
+	private volatile long droppedSamples = 0;
+	private volatile double latencySum = 0;
+	private volatile long latencySamples = 0;
+	private volatile double latencyMax = 0;
 	
-	private final AudioFormat AUDIO_FORMAT = new AudioFormat(SAMPLE_RATE, 8, 1, true, false);
+	private final AudioFormat AUDIO_FORMAT = new AudioFormat(SAMPLE_RATE, 16, 1, true, false);		// Signed little endian, as the ring writes
+	private static final int BYTES_PER_SAMPLE = 2;
 
 	private static final double FPS = Parameters.SPEAKER_DEFAULT_FPS;	
 	private static final int SAMPLE_RATE = Parameters.TIA_AUDIO_SAMPLE_RATE;
+	private static final int OUTPUT_SAMPLE_RATE = Parameters.SPEAKER_OUTPUT_SAMPLE_RATE;
+	private static final int MAX_FRAME_SAMPLES = 2048;		// Same as the generator frame buffer
 	private static final int INPUT_BUFFER_SIZE = Parameters.SPEAKER_INPUT_BUFFER_SIZE;							// In frames (samples)
 	private static final int OUTPUT_BUFFER_SIZE = Parameters.SPEAKER_OUTPUT_BUFFER_SIZE;						// In frames (samples)
-	private static final int OUTPUT_BUFFER_FULL_SLEEP_TIME = Parameters.SPEAKER_OUTPUT_BUFFER_FULL_SLEEP_TIME;	// In milliseconds
-	private static final int NO_DATA_SLEEP_TIME = Parameters.SPEAKER_NO_DATA_SLEEP_TIME;						// In milliseconds
+	private static final long NO_DATA_WAIT = Parameters.SPEAKER_NO_DATA_SLEEP_TIME * 1000000L;				// In nanoseconds, woken earlier by new samples
+	private static final int TARGET_LATENCY = Parameters.SPEAKER_TARGET_LATENCY;								// In milliseconds
+	private static final int MAX_LATENCY = Parameters.SPEAKER_MAX_LATENCY;									// In milliseconds
+	private static final double MAX_RATE_DEVIATION = Parameters.SPEAKER_MAX_RATE_DEVIATION;
 	private static final int ADDED_THREAD_PRIORITY = Parameters.SPEAKER_ADDED_THREAD_PRIORITY;
+	private static final boolean AUDIO_MASTER_CLOCK = Parameters.CONSOLE_AUDIO_MASTER_CLOCK;
 
 }